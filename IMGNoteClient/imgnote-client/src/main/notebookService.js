@@ -62,7 +62,8 @@ export async function listCategories() {
   const entries = await readdir(base, { withFileTypes: true })
   const list = []
   for (const ent of entries) {
-    if (!ent.isDirectory()) continue
+    // 以 . 开头的目录不是分类（如服务端的解析缓存 .imgnote）
+    if (!ent.isDirectory() || ent.name.startsWith('.')) continue
     const catPath = join(base, ent.name)
     const metaPath = join(catPath, CATEGORY_FILE)
     try {
@@ -513,7 +514,11 @@ export async function migrateDataBase(targetFolderPath) {
   const base = getDataBasePath()
   const dest = join(targetFolderPath, 'dataBase')
   await mkdir(dest, { recursive: true })
-  await cp(base, dest, { recursive: true })
+  // 服务端的解析缓存（以 . 开头的目录）可重建，不随数据库迁移
+  await cp(base, dest, {
+    recursive: true,
+    filter: (src) => dirname(src) !== base || !basename(src).startsWith('.')
+  })
   setDataBasePath(dest)
   return dest
 }
@@ -1,6 +1,6 @@
 import { request } from '@/utils/Request'
 import { Api } from '@/utils/Api'
-import { requestJson } from '../utils/Request'
+import { requestText, requestStream } from '../utils/Request'
 
 /** 读取笔记本内容。大文本时可传 timeout（毫秒）延长请求超时，默认 60 秒 */
 export async function readNote(imagePath, password = '', options = {}) {
@@ -12,11 +12,71 @@ export async function readNote(imagePath, password = '', options = {}) {
   })
 }
 
-export async function writeNote(imagePath, content, encryptionType = 0, password = '') {
-  const res = await requestJson({
-    url: Api.notebook.write,
-    params: { imagePath, content, encryptionType, password },
-    showLoading: false
+/**
+ * 流式读取笔记本内容，适用于大文本：onHeader 收到 { header, img, dataLength }，onText 逐块收到文本，
+ * onEnd 收到 { isDataComplete }，onError 收到读取中途的 { code, info }。
+ * 读取开始前出错（如文件不存在、Header 标识错误）时返回普通响应 { code, info }，否则返回 null
+ */
+export async function readNoteStream(imagePath, password = '', handlers = {}) {
+  const { onHeader, onText, onEnd, onError } = handlers
+  return await requestStream({
+    url: Api.notebook.readStream,
+    params: { imagePath, password },
+    onLine: (line) => {
+      if (line.type === 'header') onHeader?.(line)
+      else if (line.type === 'data') onText?.(line.text)
+      else if (line.type === 'end') onEnd?.(line)
+      else if (line.type === 'error') onError?.(line)
+    }
+  })
+}
+
+/** 只读取笔记本 Header（时间戳、加密方式、密码 MD5），不解码正文；出错时返回 { code, info } 或 null，不弹出提示 */
+export async function peekNoteHeader(imagePath) {
+  return await request({
+    url: Api.notebook.peekHeader,
+    params: { imagePath },
+    showLoading: false,
+    showError: false
+  })
+}
+
+/**
+ * 读取正文中的一段，offset、length 按 UTF-8 字节计算，服务端只解码涉及的块
+ * 返回 { offset, length, totalLength, text, isDataComplete }，起止位置已调整到字符边界；出错时返回 null，不弹出提示
+ */
+export async function readNoteRange(imagePath, offset, length) {
+  const res = await request({
+    url: Api.notebook.readRange,
+    params: { imagePath, offset, length },
+    showLoading: false,
+    showError: false
+  })
+  return res?.code === 200 ? res.data : null
+}
+
+/**
+ * 查询服务端图库索引：各笔记本图片的尺寸、容量（maxContentLen）、Header 写入时间、加密方式与正文长度，不解码图片
+ * 服务端只重新解析有变化的图片。返回 [{ imagePath, categoryId, noteId, code, width, height, maxContentLen, time, encrypted, dataLength }]
+ */
+export async function queryLibrary(rootPath, categoryId) {
+  const res = await request({
+    url: Api.library.query,
+    params: { rootPath, categoryId },
+    showLoading: false,
+    showError: false
+  })
+  return res?.data ?? []
+}
+
+/** 写入笔记本内容。正文作为请求体流式上传，服务端边接收边写入像素；大文本时可传 timeout（毫秒），默认 60 秒 */
+export async function writeNote(imagePath, content, encryptionType = 0, password = '', options = {}) {
+  const res = await requestText({
+    url: Api.notebook.writeStream,
+    params: { imagePath, encryptionType, password },
+    body: content,
+    showLoading: false,
+    timeout: options.timeout ?? 60 * 1000
   })
   return res?.code === 200
 }
@@ -1,5 +1,18 @@
 import { defineStore } from 'pinia'
-import { ipcNotebook } from '@/api/notebook'
+import { ipcNotebook, queryLibrary, readNoteRange } from '@/api/notebook'
+
+// 卡片预览读取的正文字节数与并发请求数
+const PREVIEW_BYTES = 256
+const PREVIEW_CONCURRENCY = 4
+
+// 预览按图片路径缓存，Header 写入时间不变时不再读取
+const previewCache = new Map()
+
+/** 取正文第一个非空行作为预览 */
+function firstLine(text) {
+  const line = (text || '').split('\n').find((l) => l.trim())
+  return line ? line.trim().slice(0, 80) : ''
+}
 
 export const useNotebookStore = defineStore('notebook', {
   state: () => ({
@@ -34,6 +47,53 @@ export const useNotebookStore = defineStore('notebook', {
       } finally {
         this.loading = false
       }
+      // 图库索引不阻塞列表显示，服务端未启动时忽略
+      this.fetchLibraryIndex().catch(() => {})
+    },
+    /**
+     * 从服务端图库索引补充尺寸、容量、写入时间与正文长度，加密状态以图片 Header 为准
+     * 索引一次返回整个图库且只重新解析有变化的图片，列表不使用逐个或批量读取（/notebook/readBatch）
+     */
+    async fetchLibraryIndex() {
+      const rootPath = await ipcNotebook.getDataBasePath?.()
+      if (!rootPath) return
+      const items = await queryLibrary(rootPath)
+      const byPath = new Map(items.map((it) => [it.imagePath, it]))
+      for (const note of this.list) {
+        const it = byPath.get(note.imagePath)
+        if (!it) continue
+        note.index = {
+          width: it.width,
+          height: it.height,
+          maxContentLen: it.maxContentLen,
+          time: it.time,
+          dataLength: it.dataLength
+        }
+        if (it.code === 200) note.encrypted = !!it.encrypted
+      }
+      this.fetchPreviews().catch(() => {})
+    },
+    /** 读取未加密笔记本正文开头的一段作为卡片预览，服务端只解码第一个块；加密的笔记本不读取正文 */
+    async fetchPreviews() {
+      const notes = []
+      for (const note of this.list) {
+        if (note.encrypted || !(note.index?.dataLength > 0)) continue
+        const cached = previewCache.get(note.imagePath)
+        if (cached && cached.time === note.index.time) note.preview = cached.text
+        else notes.push(note)
+      }
+      let next = 0
+      const worker = async () => {
+        while (next < notes.length) {
+          const note = notes[next++]
+          const time = note.index.time
+          const range = await readNoteRange(note.imagePath, 0, PREVIEW_BYTES)
+          if (!range) continue
+          note.preview = firstLine(range.text)
+          previewCache.set(note.imagePath, { time, text: note.preview })
+        }
+      }
+      await Promise.all(Array.from({ length: Math.min(PREVIEW_CONCURRENCY, notes.length) }, worker))
     },
     setSelectedCategory(id) {
       this.selectedCategoryId = id
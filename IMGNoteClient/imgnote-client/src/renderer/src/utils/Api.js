@@ -1,7 +1,14 @@
 const Api = {
   notebook: {
     read: '/notebook/read',
-    write: '/notebook/write'
+    readStream: '/notebook/readStream',
+    readRange: '/notebook/readRange',
+    peekHeader: '/notebook/peekHeader',
+    write: '/notebook/write',
+    writeStream: '/notebook/writeStream'
+  },
+  library: {
+    query: '/library/query'
   }
 }
 
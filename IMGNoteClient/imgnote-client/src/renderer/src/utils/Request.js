@@ -125,13 +125,15 @@ const requestJson = (config) => {
     'X-Requested-With': 'XMLHttpRequest',
     token: token
   }
+  const postConfig = {
+    headers,
+    showLoading,
+    showError,
+    errorCallback: config.errorCallback
+  }
+  if (config.timeout != null) postConfig.timeout = config.timeout
   return instance
-    .post(url, params, {
-      headers,
-      showLoading,
-      showError,
-      errorCallback: config.errorCallback
-    })
+    .post(url, params, postConfig)
     .catch((error) => {
       if (error.showError) {
         Message.error(error.msg)
@@ -140,4 +142,75 @@ const requestJson = (config) => {
     })
 }
 
-export { request, requestJson }
+/** 请求体为原始文本（text/plain），其余参数放在查询字符串中，供流式写入接口使用 */
+const requestText = (config) => {
+  const { url, params = {}, body = '', showLoading = true, showError = true } = config
+  let userInfoJson = localStorage.getItem('userInfo')
+  const token = userInfoJson ? JSON.parse(userInfoJson).token : ''
+  const headers = {
+    'Content-Type': 'text/plain;charset=UTF-8',
+    'X-Requested-With': 'XMLHttpRequest',
+    token: token
+  }
+  const postConfig = {
+    params,
+    headers,
+    showLoading,
+    showError,
+    errorCallback: config.errorCallback
+  }
+  if (config.timeout != null) postConfig.timeout = config.timeout
+  return instance.post(url, body, postConfig).catch((error) => {
+    if (error.showError) {
+      Message.error(error.msg)
+    }
+    return null
+  })
+}
+
+/**
+ * 流式读取 NDJSON 响应，每解析出一行调用一次 onLine
+ * 读取开始前出错时服务端返回普通 JSON，原样返回给调用方；流式读取完成返回 null
+ */
+const requestStream = async (config) => {
+  const { url, params = {}, onLine, showError = true } = config
+  let formData = new FormData()
+  for (let key in params) {
+    formData.append(key, params[key] === undefined ? '' : params[key])
+  }
+  let userInfoJson = localStorage.getItem('userInfo')
+  const token = userInfoJson ? JSON.parse(userInfoJson).token : ''
+  try {
+    const response = await fetch(instance.defaults.baseURL + url, {
+      method: 'POST',
+      body: formData,
+      credentials: 'include',
+      headers: { 'X-Requested-With': 'XMLHttpRequest', token: token }
+    })
+    if (!(response.headers.get('Content-Type') || '').includes('application/x-ndjson')) {
+      return await response.json()
+    }
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder('utf-8')
+    let buffer = ''
+    while (true) {
+      const { done, value } = await reader.read()
+      buffer += decoder.decode(value, { stream: !done })
+      let index
+      while ((index = buffer.indexOf('\n')) >= 0) {
+        const line = buffer.slice(0, index)
+        buffer = buffer.slice(index + 1)
+        if (line) onLine(JSON.parse(line))
+      }
+      if (done) break
+    }
+    return null
+  } catch (e) {
+    if (showError) {
+      Message.error('系统故障')
+    }
+    return null
+  }
+}
+
+export { request, requestJson, requestText, requestStream }
@@ -0,0 +1,130 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.ImgGen;
+import com.imgnote.IMGNoteServer.bean.Constants;
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Pixel;
+import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
+import com.imgnote.IMGNoteServer.enums.EncodingEnum;
+import com.imgnote.IMGNoteServer.utils.StringTools;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成
+ * 图片与正文均由固定种子生成，无需外部文件；生成的图片缓存在临时目录，多次运行间复用。
+ */
+public class BenchmarkData {
+
+    private static final Path DATA_DIR = Path.of(System.getProperty("java.io.tmpdir"), "imgnote-jmh");
+
+    private static final String TEXT_SAMPLE = "IMGNote 图片笔记本 0123456789 abcdefghijklmnopqrstuvwxyz，隐写测试文本。\n";
+
+    /**
+     * 获取指定像素数（百万像素）的 4:3 RGB PNG 图片，不存在时生成
+     */
+    public static Path image(int megapixels) throws IOException {
+        Files.createDirectories(DATA_DIR);
+        Path path = DATA_DIR.resolve("origin-" + megapixels + "mp.png");
+        if (Files.exists(path)) {
+            return path;
+        }
+
+        long totalPixels = megapixels * 1_000_000L;
+        int width = (int) Math.round(Math.sqrt(totalPixels * 4.0 / 3));
+        int height = (int) (totalPixels / width);
+        if (width > Constants.MAX_IMG_SIZE_INT || height > Constants.MAX_IMG_SIZE_INT) {
+            throw new IllegalArgumentException("图片尺寸超出范围: " + width + "x" + height);
+        }
+
+        // 渐变叠加噪声，压缩率接近照片
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(megapixels);
+        for (int y = 0, p = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, p += 3) {
+                data[p] = (byte) (random.nextInt(64) + 96);
+                data[p + 1] = (byte) (y * 255 / height);
+                data[p + 2] = (byte) (x * 255 / width);
+            }
+        }
+
+        // 先写临时文件，避免中断后留下不完整的缓存图片
+        Path temp = Files.createTempFile(DATA_DIR, "origin-", ".tmp");
+        ImageIO.write(image, Constants.FORMAT, temp.toFile());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+
+    /**
+     * 将原始图片复制为可写入的工作副本
+     */
+    public static Path workingCopy(int megapixels, String name) throws IOException {
+        Path target = DATA_DIR.resolve(name + "-" + megapixels + "mp.png");
+        Files.copy(image(megapixels), target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * 生成UTF-8编码后为指定字节数的中英文混合正文
+     */
+    public static String text(int byteLen) {
+        byte[] sample = TEXT_SAMPLE.getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[byteLen];
+        for (int i = 0; i < byteLen; i += sample.length) {
+            System.arraycopy(sample, 0, data, i, Math.min(sample.length, byteLen - i));
+        }
+        // 截断处可能落在多字节字符中间，以空格补齐
+        int end = byteLen;
+        while (end > 0 && (data[end - 1] & 0xC0) == 0x80) {
+            end--;
+        }
+        if (end > 0 && (data[end - 1] & 0x80) != 0) {
+            end--;
+        }
+        for (int i = end; i < byteLen; i++) {
+            data[i] = ' ';
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 不经过Spring直接用 ImgGen 写入正文，用于准备带合法Header的图片
+     */
+    public static void writeText(Path imagePath, String text) {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        try (ImgGen imgGen = new ImgGen(imagePath.toString(), imagePath.toString(), Constants.FORMAT)) {
+            imgGen.genStartAndEnd(data);
+            Header header = header();
+            header.setStartPixel(imgGen.getStartPixel());
+            header.setEndPixel(imgGen.getEndPixel());
+            header.setDataMd5(StringTools.getMD5HexOfBytes(data));
+            imgGen.gen(header);
+        }
+    }
+
+    /**
+     * 生成字段取值完整的Header
+     */
+    public static Header header() {
+        Header header = new Header();
+        header.setRecognitionShort(Constants.RECOGNITION);
+        header.setEncoding(EncodingEnum.UTF_8);
+        header.setEncryptionType(EncodeTypeEnum.NONE);
+        header.setStartPixel(new Pixel(123, 45));
+        header.setEndPixel(new Pixel(4321, 987));
+        header.setTime(1700000000000L);
+        header.setDataMd5(StringTools.getMD5HexOfString("data"));
+        header.setVerifyCode(StringTools.getMD5HexOfString("password"));
+        return header;
+    }
+
+}
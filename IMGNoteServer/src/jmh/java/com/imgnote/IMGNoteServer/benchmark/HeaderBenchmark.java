@@ -0,0 +1,77 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.ImgParser;
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.converter.HeaderCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header 编码、解码及从像素解析Header的基准
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderBenchmark {
+
+    private Header header;
+
+    private ByteBuffer headerBuffer;
+
+    private Path imagePath;
+
+    private ImgParser imgParser;
+
+    @Setup
+    public void setup() throws IOException {
+        header = BenchmarkData.header();
+        headerBuffer = ByteBuffer.wrap(HeaderCodec.encode(header));
+
+        // 写入一次正文，使图片带有合法Header
+        imagePath = BenchmarkData.workingCopy(1, "header");
+        BenchmarkData.writeText(imagePath, BenchmarkData.text(1024));
+        imgParser = new ImgParser(imagePath.toString(), new Header());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        imgParser.close();
+        Files.deleteIfExists(imagePath);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return HeaderCodec.encode(header);
+    }
+
+    @Benchmark
+    public Header decode() {
+        Header result = new Header();
+        HeaderCodec.decode(headerBuffer, result);
+        return result;
+    }
+
+    @Benchmark
+    public void parseHeader() {
+        imgParser.parseHeader();
+    }
+
+}
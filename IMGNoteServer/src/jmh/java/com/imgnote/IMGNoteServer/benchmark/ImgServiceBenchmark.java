@@ -0,0 +1,100 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.Entity.param.WriteParam;
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
+import com.imgnote.IMGNoteServer.ServerApplication;
+import com.imgnote.IMGNoteServer.service.ImgService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端读写基准，经过 Spring 容器中的 ImgService
+ * 场景格式为 百万像素:正文KB，正文不超过对应图片的容量。内存与持久化缓存均关闭，每次读取都完整解码。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImgServiceBenchmark {
+
+    @Param({"1:1", "1:256", "12:1024", "12:4096", "50:1024", "50:16384"})
+    private String scenario;
+
+    private ConfigurableApplicationContext context;
+
+    private ImgService imgService;
+
+    private Path imagePath;
+
+    private WriteParam writeParam;
+
+    private ReadParam readParam;
+
+    @Setup
+    public void setup() throws IOException {
+        String[] parts = scenario.split(":");
+        int megapixels = Integer.parseInt(parts[0]);
+        int payloadKb = Integer.parseInt(parts[1]);
+
+        context = new SpringApplicationBuilder(ServerApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties("logging.level.root=WARN",
+                        "imgnote.cache.max-size-mb=0",
+                        "imgnote.cache.disk.enabled=false")
+                .run();
+        imgService = context.getBean(ImgService.class);
+
+        imagePath = BenchmarkData.workingCopy(megapixels, "service");
+
+        writeParam = new WriteParam();
+        writeParam.setImagePath(imagePath.toString());
+        writeParam.setContent(BenchmarkData.text(payloadKb * 1024));
+        writeParam.setEncryptionType(0);
+        writeParam.setPassword("");
+
+        readParam = new ReadParam();
+        readParam.setImagePath(imagePath.toString());
+
+        // 预先写入一次，读取基准读到的是完整正文
+        imgService.write(writeParam);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(imagePath);
+    }
+
+    @Benchmark
+    public void write() {
+        imgService.write(writeParam);
+    }
+
+    @Benchmark
+    public NoteBookVo read() {
+        return imgService.read(readParam);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.bean.Constants;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整图像素读取与 ImageIO 整图保存基准
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImgToolsBenchmark {
+
+    @Param({"1", "12", "50"})
+    private int megapixels;
+
+    private BufferedImage image;
+
+    private Path outputPath;
+
+    @Setup
+    public void setup() throws IOException {
+        image = ImageIO.read(BenchmarkData.image(megapixels).toFile());
+        outputPath = Files.createTempFile("imgnote-jmh-save-", ".png");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputPath);
+    }
+
+    @Benchmark
+    public int[] getPixelRangeInfo() {
+        return ImgTools.getPixelRangeInfo(image, 0, 0, image.getWidth() - 1, image.getHeight() - 1);
+    }
+
+    @Benchmark
+    public void saveImg() {
+        ImgTools.saveImg(image, outputPath.toString(), Constants.FORMAT);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.LsbCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每通道位数不同时的嵌入/提取基准，同样的正文位数越多涉及的像素越少
+ * 每通道 1 位时走原有内核（不带 jdk.incubator.vector 模块时为标量实现）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LsbBitsPerChannelBenchmark {
+
+    @Param({"1", "2", "3", "4"})
+    private int bitsPerChannel;
+
+    @Param({"1024"})
+    private int payloadKb;
+
+    private byte[] data;
+
+    private int[] pixels;
+
+    private int[] encodedPixels;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.text(payloadKb * 1024).getBytes(StandardCharsets.UTF_8);
+        pixels = new int[LsbCodec.pixelsForBytes(data.length, bitsPerChannel)];
+        Random random = new Random(payloadKb);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        encodedPixels = pixels.clone();
+        LsbCodec.embed(data, 0, data.length, encodedPixels, 0, bitsPerChannel);
+    }
+
+    @Benchmark
+    public int[] insertData() {
+        LsbCodec.embed(data, 0, data.length, pixels, 0, bitsPerChannel);
+        return pixels;
+    }
+
+    @Benchmark
+    public byte[] extractData() {
+        return LsbCodec.extract(encodedPixels, 0, data.length, bitsPerChannel);
+    }
+
+}
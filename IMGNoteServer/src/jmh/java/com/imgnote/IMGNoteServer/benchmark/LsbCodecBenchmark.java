@@ -0,0 +1,85 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.LsbCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LSB 嵌入/提取内核基准，即 ImgGen.insertData 与 ImgParser.getData 去掉图片读写后的部分
+ * 内核在类加载时选定，标量与向量实现分别在不带/带 jdk.incubator.vector 模块的 fork 中运行。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LsbCodecBenchmark {
+
+    @Param({"1", "1024", "51200"})
+    private int payloadKb;
+
+    private byte[] data;
+
+    private int[] pixels;
+
+    private int[] encodedPixels;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.text(payloadKb * 1024).getBytes(StandardCharsets.UTF_8);
+        pixels = new int[LsbCodec.pixelsForBytes(data.length)];
+        Random random = new Random(payloadKb);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        encodedPixels = pixels.clone();
+        LsbCodec.embed(data, encodedPixels, 0);
+    }
+
+    @Benchmark
+    public int[] insertData() {
+        LsbCodec.embed(data, pixels, 0);
+        return pixels;
+    }
+
+    @Benchmark
+    public byte[] extractData() {
+        return LsbCodec.extract(encodedPixels, 0, data.length);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "--add-modules", "jdk.incubator.vector"})
+    public int[] insertDataVector() {
+        checkVectorized();
+        LsbCodec.embed(data, pixels, 0);
+        return pixels;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "--add-modules", "jdk.incubator.vector"})
+    public byte[] extractDataVector() {
+        checkVectorized();
+        return LsbCodec.extract(encodedPixels, 0, data.length);
+    }
+
+    private static void checkVectorized() {
+        if (!LsbCodec.isVectorized()) {
+            throw new IllegalStateException("当前平台不支持 Vector API 内核");
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.imgnote.IMGNoteServer.benchmark;
+
+import com.imgnote.IMGNoteServer.utils.StringTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二进制字符串转换基准
+ * 每字节展开为8个字符，正文上限取 1MB（对应8M字符），更大的正文只走字节数组路径。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StringToolsBenchmark {
+
+    @Param({"1", "64", "1024"})
+    private int payloadKb;
+
+    private String text;
+
+    private String binary;
+
+    @Setup
+    public void setup() {
+        text = BenchmarkData.text(payloadKb * 1024);
+        binary = StringTools.stringToBytes(text);
+    }
+
+    @Benchmark
+    public String stringToBytes() {
+        return StringTools.stringToBytes(text);
+    }
+
+    @Benchmark
+    public String bytesToString() {
+        return StringTools.bytesToString(binary);
+    }
+
+}
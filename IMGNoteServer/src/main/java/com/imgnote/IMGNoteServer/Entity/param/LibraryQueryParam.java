@@ -0,0 +1,14 @@
+package com.imgnote.IMGNoteServer.Entity.param;
+
+import lombok.Data;
+
+@Data
+public class LibraryQueryParam {
+
+    // 笔记本数据库根目录，目录结构为 根目录/分类/笔记本/图片
+    private String rootPath;
+
+    // 只返回该分类下的笔记本，为空时返回全部
+    private String categoryId;
+
+}
@@ -0,0 +1,15 @@
+package com.imgnote.IMGNoteServer.Entity.param;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReadBatchParam {
+
+    private List<String> imagePaths;
+
+    // 只解析Header，不解码正文
+    private Boolean headerOnly;
+
+}
@@ -0,0 +1,17 @@
+package com.imgnote.IMGNoteServer.Entity.param;
+
+import lombok.Data;
+
+/**
+ * 范围读取，offset 与 length 按正文的 UTF-8 字节计算
+ */
+@Data
+public class ReadRangeParam {
+
+    private String imagePath;
+
+    private Long offset;
+
+    private Integer length;
+
+}
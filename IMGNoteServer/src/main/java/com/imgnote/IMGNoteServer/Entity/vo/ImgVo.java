@@ -0,0 +1,37 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import com.imgnote.IMGNoteServer.bean.Img;
+import lombok.Data;
+
+/**
+ * 图片基本信息：尺寸与可写入的最大字节数
+ * maxContentLen 为一定能写入的正文字节数，作为写入上限；maxStoredLen 为数据区可保存的字节数；
+ * estimatedContentLen 为按当前正文压缩率估算的正文字节数，只用于提示。
+ */
+@Data
+public class ImgVo {
+
+    private int width;
+
+    private int height;
+
+    private long maxContentLen;
+
+    private long maxStoredLen;
+
+    private long estimatedContentLen;
+
+    public ImgVo(int width, int height, long maxContentLen, long maxStoredLen, long estimatedContentLen) {
+        this.width = width;
+        this.height = height;
+        this.maxContentLen = maxContentLen;
+        this.maxStoredLen = maxStoredLen;
+        this.estimatedContentLen = estimatedContentLen;
+    }
+
+    public static ImgVo of(Img img) {
+        return img == null ? null
+                : new ImgVo(img.getWidth(), img.getHeight(), img.getMaxContentLen(), img.getMaxStoredLen(), img.getMaxContentLen());
+    }
+
+}
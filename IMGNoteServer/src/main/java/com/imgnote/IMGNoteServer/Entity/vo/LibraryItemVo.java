@@ -0,0 +1,55 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import lombok.Data;
+
+/**
+ * 图库索引中单个笔记本的信息，由 Header 与块索引表得到，不解码正文
+ * 图片中没有可识别的笔记本或解析失败时 code、info 与普通接口的错误响应一致，能读取到图片尺寸时仍携带尺寸与容量。
+ */
+@Data
+public class LibraryItemVo {
+
+    private String imagePath;
+
+    private String categoryId;
+
+    private String noteId;
+
+    // 图片文件大小与修改时间（毫秒）
+    private long fileSize;
+
+    private long lastModified;
+
+    private Integer code;
+
+    private String info;
+
+    private Integer width;
+
+    private Integer height;
+
+    private Long maxContentLen;
+
+    // Header 中的写入时间
+    private Long time;
+
+    private Integer encryptionType;
+
+    private Boolean encrypted;
+
+    // 正文字节数，正文压缩且为连续布局时未知
+    private Long dataLength;
+
+    // 数据区实际保存的字节数
+    private Long storedLength;
+
+    public void applyImg(ImgVo img) {
+        if (img == null) {
+            return;
+        }
+        this.width = img.getWidth();
+        this.height = img.getHeight();
+        this.maxContentLen = img.getMaxContentLen();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Img;
+import com.imgnote.IMGNoteServer.cache.CachedNoteBook;
+import lombok.Data;
+
+/**
+ * 读取接口的响应：Header、正文、图片尺寸与容量
+ * Header 标识错误时只携带 img，供客户端判断可写入的容量。
+ */
+@Data
+public class NoteBookVo {
+
+    private Header header;
+
+    private String data;
+
+    private Boolean isDataComplete;
+
+    private ImgVo img;
+
+    public static NoteBookVo of(CachedNoteBook noteBook) {
+        NoteBookVo vo = new NoteBookVo();
+        vo.setHeader(noteBook.getHeader());
+        vo.setData(noteBook.getData());
+        vo.setIsDataComplete(noteBook.getIsDataComplete());
+        vo.setImg(new ImgVo(noteBook.getWidth(), noteBook.getHeight(), noteBook.getMaxContentLen(), noteBook.getMaxStoredLen(),
+                noteBook.getEstimatedContentLen()));
+        return vo;
+    }
+
+    /**
+     * 只有Header和图片信息，不含正文
+     */
+    public static NoteBookVo of(Header header, Img img) {
+        NoteBookVo vo = of(img);
+        vo.setHeader(header);
+        return vo;
+    }
+
+    public static NoteBookVo of(Img img) {
+        NoteBookVo vo = new NoteBookVo();
+        vo.setImg(ImgVo.of(img));
+        return vo;
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import lombok.Data;
+
+/**
+ * 批量读取中单个图片的结果，失败时 code、info 与普通接口的错误响应一致
+ */
+@Data
+public class ReadBatchItemVo {
+
+    private String imagePath;
+
+    private Integer code;
+
+    private String info;
+
+    private NoteBookVo data;
+
+    public ReadBatchItemVo(String imagePath) {
+        this.imagePath = imagePath;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import lombok.Data;
+
+/**
+ * 范围读取结果
+ * 起止位置调整到字符边界，offset、length 为实际返回的字节区间；下一段从 offset + length 开始读取。
+ */
+@Data
+public class ReadRangeVo {
+
+    private long offset;
+
+    private int length;
+
+    // 正文总字节数
+    private long totalLength;
+
+    private String text;
+
+    // 所读的块是否通过校验
+    private Boolean isDataComplete;
+
+}
@@ -0,0 +1,41 @@
+package com.imgnote.IMGNoteServer.Entity.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.imgnote.IMGNoteServer.bean.Header;
+import lombok.Data;
+
+/**
+ * 流式读取响应中的一行（NDJSON）
+ * type 为 header 时携带 header、img、dataLength；为 data 时携带 text；
+ * 为 end 时携带 isDataComplete；为 error 时携带 code、info。
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StreamLineVo {
+
+    public static final String TYPE_HEADER = "header";
+    public static final String TYPE_DATA = "data";
+    public static final String TYPE_END = "end";
+    public static final String TYPE_ERROR = "error";
+
+    private String type;
+
+    private Header header;
+
+    private ImgVo img;
+
+    private Long dataLength;
+
+    private String text;
+
+    private Boolean isDataComplete;
+
+    private Integer code;
+
+    private String info;
+
+    public StreamLineVo(String type) {
+        this.type = type;
+    }
+
+}
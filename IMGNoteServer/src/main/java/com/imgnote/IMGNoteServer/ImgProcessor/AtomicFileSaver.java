@@ -0,0 +1,149 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import com.imgnote.IMGNoteServer.enums.FsyncPolicyEnum;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 原子保存文件
+ * 先写入同目录下的临时文件，再通过重命名替换目标文件，保存中途崩溃时原文件保持完整。
+ * 刷盘策略：
+ * ALWAYS 重命名前刷写临时文件、重命名后刷写目录，断电后也不会丢失或损坏；
+ * BATCHED 保存后记录文件，定期统一刷盘，断电时可能丢失最近一个周期内的保存；
+ * NEVER 不主动刷盘，进程崩溃安全，断电时取决于操作系统。
+ */
+@Slf4j
+@Component
+public class AtomicFileSaver {
+
+    /**
+     * 写入临时文件的操作
+     */
+    @FunctionalInterface
+    public interface WriteAction {
+
+        void write(FileChannel out) throws IOException;
+
+    }
+
+    /**
+     * 不主动刷盘的实例，供 Spring 容器外使用
+     */
+    public static final AtomicFileSaver NO_SYNC = new AtomicFileSaver(FsyncPolicyEnum.NEVER);
+
+    @Getter
+    private final FsyncPolicyEnum policy;
+
+    // 已替换、等待批量刷盘的文件
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AtomicFileSaver(AppConfig appConfig) {
+        this(appConfig.getFsyncPolicy());
+    }
+
+    public AtomicFileSaver(FsyncPolicyEnum policy) {
+        this.policy = policy == null ? FsyncPolicyEnum.ALWAYS : policy;
+    }
+
+    /**
+     * 保存文件，action 写入临时文件后替换目标文件
+     */
+    public void save(String outputPath, WriteAction action) throws IOException {
+        Path target = Path.of(outputPath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString() + ".", ".tmp");
+        try {
+            copyPermissions(target, temp);
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                action.write(out);
+                if (policy == FsyncPolicyEnum.ALWAYS) {
+                    out.force(true);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (policy == FsyncPolicyEnum.ALWAYS) {
+            syncDirectory(target.getParent());
+        } else if (policy == FsyncPolicyEnum.BATCHED) {
+            pending.add(target);
+        }
+    }
+
+    /**
+     * 批量刷盘，刷写等待中的文件及其所在目录
+     */
+    @Scheduled(fixedDelayString = "${imgnote.save.fsync-interval-ms:1000}")
+    public void syncPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Set<Path> dirs = new HashSet<>();
+        Iterator<Path> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Path path = iterator.next();
+            iterator.remove();
+            // Windows 下刷盘需要写权限
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+                dirs.add(path.getParent());
+            } catch (IOException e) {
+                log.warn("文件刷盘失败: {}, {}", path, e.getMessage());
+            }
+        }
+        dirs.forEach(AtomicFileSaver::syncDirectory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncPending();
+    }
+
+    /**
+     * 刷写目录，使重命名持久化
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Windows 等平台无法打开目录，重命名由文件系统自身保证
+        }
+    }
+
+    /**
+     * 临时文件默认仅所有者可读写，替换前沿用原文件的权限
+     */
+    private static void copyPermissions(Path source, Path target) {
+        try {
+            if (Files.exists(source)) {
+                Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+            }
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // 非 POSIX 文件系统（如 Windows）无需处理
+        }
+    }
+
+}
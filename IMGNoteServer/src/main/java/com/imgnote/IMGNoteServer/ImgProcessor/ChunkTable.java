@@ -0,0 +1,144 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 分块布局的块索引表，位于数据区末尾（大端）
+ * <pre>
+ * 块 0 ... 块 n-1 | n × (偏移 int, 长度 int, CRC32 int) | 块数 int, 块大小 int, 正文字节数 long, 表 CRC32 int
+ * </pre>
+ * 偏移与长度为块在数据区中存储的字节区间，CRC32 按存储的字节计算；每块对应正文中 chunkSize 字节（最后一块可能更少）。
+ * 索引表写在块数据之后，写入时无需预先知道各块压缩后的长度。
+ */
+public class ChunkTable {
+
+    public static final int ENTRY_BYTES = 12;
+
+    public static final int TRAILER_BYTES = 20;
+
+    @Getter
+    private final int chunkSize;
+
+    @Getter
+    private final long rawLength;
+
+    private final int[] offsets;
+
+    private final int[] lengths;
+
+    private final int[] crcs;
+
+    public ChunkTable(int chunkSize, long rawLength) {
+        this.chunkSize = chunkSize;
+        this.rawLength = rawLength;
+        int count = chunkCount(rawLength, chunkSize);
+        this.offsets = new int[count];
+        this.lengths = new int[count];
+        this.crcs = new int[count];
+    }
+
+    public static int chunkCount(long rawLength, int chunkSize) {
+        return (int) ((rawLength + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * 索引表（含尾部）的字节数
+     */
+    public static int byteLength(int count) {
+        return count * ENTRY_BYTES + TRAILER_BYTES;
+    }
+
+    /**
+     * 从尾部读取块数，用于确定索引表的读取范围
+     */
+    public static int readCount(byte[] trailer) {
+        return ByteBuffer.wrap(trailer).getInt(0);
+    }
+
+    public int getCount() {
+        return offsets.length;
+    }
+
+    public int getOffset(int chunk) {
+        return offsets[chunk];
+    }
+
+    public int getLength(int chunk) {
+        return lengths[chunk];
+    }
+
+    public int getCrc(int chunk) {
+        return crcs[chunk];
+    }
+
+    /**
+     * 块对应的正文字节数
+     */
+    public int getRawLength(int chunk) {
+        return (int) Math.min(chunkSize, rawLength - (long) chunk * chunkSize);
+    }
+
+    public void set(int chunk, int offset, int length, int crc) {
+        offsets[chunk] = offset;
+        lengths[chunk] = length;
+        crcs[chunk] = crc;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(byteLength(getCount()));
+        for (int i = 0; i < getCount(); i++) {
+            buffer.putInt(offsets[i]).putInt(lengths[i]).putInt(crcs[i]);
+        }
+        buffer.putInt(getCount()).putInt(chunkSize).putLong(rawLength);
+        buffer.putInt(crc(buffer.array(), buffer.position()));
+        return buffer.array();
+    }
+
+    /**
+     * 解析以 end 结尾的索引表
+     * @param regionLength 数据区字节数，块区间不能越过索引表的起始位置
+     * @throws IllegalArgumentException 索引表校验失败或内容不合法
+     */
+    public static ChunkTable parse(byte[] bytes, int end, int regionLength) {
+        if (end < TRAILER_BYTES) {
+            throw new IllegalArgumentException("块索引表不完整");
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(bytes, end - TRAILER_BYTES, TRAILER_BYTES);
+        int count = trailer.getInt();
+        int chunkSize = trailer.getInt();
+        long rawLength = trailer.getLong();
+        int tableCrc = trailer.getInt();
+        if (count < 0 || chunkSize <= 0 || rawLength < 0 || byteLength(count) > end
+                || count != chunkCount(rawLength, chunkSize)) {
+            throw new IllegalArgumentException("块索引表不合法");
+        }
+        int from = end - byteLength(count);
+        long tableStart = (long) regionLength - byteLength(count);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, from, byteLength(count) - Integer.BYTES);
+        if ((int) crc.getValue() != tableCrc) {
+            throw new IllegalArgumentException("块索引表校验失败");
+        }
+        ChunkTable table = new ChunkTable(chunkSize, rawLength);
+        ByteBuffer entries = ByteBuffer.wrap(bytes, from, count * ENTRY_BYTES);
+        for (int i = 0; i < count; i++) {
+            int offset = entries.getInt();
+            int length = entries.getInt();
+            if (offset < 0 || length < 0 || (long) offset + length > tableStart) {
+                throw new IllegalArgumentException("块区间越界");
+            }
+            table.set(i, offset, length, entries.getInt());
+        }
+        return table;
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+}
@@ -1,21 +1,31 @@
 package com.imgnote.IMGNoteServer.ImgProcessor;
 
 import com.imgnote.IMGNoteServer.bean.*;
+import com.imgnote.IMGNoteServer.converter.HeaderCodec;
 import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
 import com.imgnote.IMGNoteServer.exceptions.BusinessException;
-import com.imgnote.IMGNoteServer.utils.ColorUtils;
 import com.imgnote.IMGNoteServer.utils.ImgTools;
+import com.imgnote.IMGNoteServer.utils.MetricsTools;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
-public class ImgGen extends ImgTools {
+public class ImgGen extends ImgTools implements Closeable {
+
+    // 流式写入时每次读取的字节数
+    private static final int STREAM_CHUNK_BYTES = 1024 * 1024;
+
+    // 增量写入时间隔小于该像素数的变化区间合并写入
+    private static final int DELTA_MERGE_GAP = 1024;
 
     @Getter
     private Pixel startPixel;
@@ -23,9 +33,17 @@ public class ImgGen extends ImgTools {
     @Getter
     private Pixel endPixel;
 
-    private HeaderBits headerBits;
+    private Header header;
+
+    private byte[] data;
+
+    private int dataLength;
 
-    private String dataBits;
+    // 增量写入：沿用原起点，只写入与原像素不同的部分
+    private boolean delta;
+
+    // 流式写入时提前封存编码的耗时，计入保存时的 PNG 编码阶段
+    private long sealNanos;
 
     private final Img img;
 
@@ -33,81 +51,217 @@ public class ImgGen extends ImgTools {
 
     private final String format;
 
-    private final BufferedImage image;
+    // 按段读写的图片，只有写入过的段会被重新编码
+    private final PngSegmentImage image;
+
+    // 数据区并行编码使用的线程池，为 null 时顺序编码
+    private final ForkJoinPool pool;
+
+    // 临时文件 + 重命名保存，按配置的策略刷盘
+    private final AtomicFileSaver fileSaver;
+
+    // 数据区每个通道承载的位数，Header 固定为 1
+    @Getter
+    private final int bitsPerChannel;
 
     public ImgGen(String originPath, String outputPath, String format) {
+        this(originPath, outputPath, format, new PngEncodeConfig());
+    }
+
+    public ImgGen(String originPath, String outputPath, String format, PngEncodeConfig encodeConfig) {
+        this(originPath, outputPath, format, encodeConfig, null);
+    }
+
+    public ImgGen(String originPath, String outputPath, String format, PngEncodeConfig encodeConfig, ForkJoinPool pool) {
+        this(originPath, outputPath, format, encodeConfig, pool, AtomicFileSaver.NO_SYNC);
+    }
+
+    public ImgGen(String originPath, String outputPath, String format, PngEncodeConfig encodeConfig, ForkJoinPool pool,
+                  AtomicFileSaver fileSaver) {
+        this(originPath, outputPath, format, encodeConfig, pool, fileSaver, new PayloadConfig());
+    }
+
+    /**
+     * @param payloadConfig 数据区每通道位数取自该配置，图片容量按该配置计算
+     */
+    public ImgGen(String originPath, String outputPath, String format, PngEncodeConfig encodeConfig, ForkJoinPool pool,
+                  AtomicFileSaver fileSaver, PayloadConfig payloadConfig) {
+        int bitsPerChannel = payloadConfig.getBitsPerChannel();
+        if (bitsPerChannel < 1 || bitsPerChannel > 4) {
+            throw new IllegalArgumentException("每通道位数应为 1-4: " + bitsPerChannel);
+        }
         this.outputPath = outputPath;
         this.format = format;
+        this.pool = pool;
+        this.fileSaver = fileSaver;
+        this.bitsPerChannel = bitsPerChannel;
+        long begin = System.nanoTime();
         try {
-            this.image = ImageIO.read(new File(originPath));
+            this.image = PngSegmentImage.open(originPath, encodeConfig, pool);
         } catch (IOException e) {
             log.error("图片读取失败: {}", e.getMessage());
             throw new BusinessException(ResponseCodeEnum.CODE_411);
         }
-        this.img = getBasicImg(image);
-        buildImg();
+        this.img = getImg(image.getWidth(), image.getHeight(), payloadConfig);
+        MetricsTools.recordStage(MetricsTools.STAGE_IMAGE_LOAD, begin, img.getWidth(), img.getHeight(), -1);
     }
 
-    private void buildImg() {
-        int[] allPixels = getPixelRangeInfo(image, 0, 0, img.getWidth() - 1, img.getHeight() - 1);
-        img.setPixels(allPixels);
+    /**
+     * 数据区末尾像素中多出的字节数，记录在 Header 中
+     */
+    public int getPaddingBytes() {
+        return LsbCodec.paddingBytes(dataLength, bitsPerChannel);
     }
 
-    private void insertHeader() {
-        String headerStr = headerBits.toString();
-        int pixelsLenForHeader = (headerStr.length() + 4 - 1) / 4;
-        // headerStr补充为4字节
-        headerStr += "0000".substring(0, 4 - headerStr.length() % 4);
-        for (int i = 0; i < pixelsLenForHeader; i++) {
-            int startIndex = i * 4;
-            int endIndex = Math.min(startIndex + 4, headerStr.length());
-            String rgbaBits = headerStr.substring(startIndex, endIndex);
-            img.getPixels()[i] = buildPixel(img.getPixels()[i], rgbaBits);
-        }
+    private void insertHeader() throws IOException {
+        byte[] headerBytes = HeaderCodec.encode(header);
+        int pixelsLenForHeader = LsbCodec.pixelsForBytes(headerBytes.length);
+        int[] pixels = new int[pixelsLenForHeader];
+        image.readPixels(0, pixels, 0, pixelsLenForHeader);
+        LsbCodec.embed(headerBytes, pixels, 0);
+        image.writePixels(0, pixels, 0, pixelsLenForHeader);
+    }
+
+    private void insertData() throws IOException {
+        int startIndex = startPixel.getY() * img.getWidth() + startPixel.getX();
+        int pixelsLenForData = LsbCodec.pixelsForBytes(data.length, bitsPerChannel);
+        int[] pixels = new int[pixelsLenForData];
+        // 数据区涉及的段先并行解码
+        image.preload(startIndex, pixelsLenForData);
+        image.readPixels(startIndex, pixels, 0, pixelsLenForData);
+        LsbCodec.embed(data, data.length, pixels, 0, bitsPerChannel, pool);
+        image.writePixels(startIndex, pixels, 0, pixelsLenForData);
     }
 
-    private void insertData() {
-        int pixelsLenForData = (dataBits.length() + 4 - 1) / 4;
+    /**
+     * 流式写入正文：按块读取输入流写入像素，不持有完整正文
+     * 读取到流末尾为止，最多为生成起止点时的长度；不足时按实际长度调整终点（压缩后的长度事先未知）。
+     * 保存为 PNG 时已写完的段立即编码并释放像素，Header 在 {@link #gen} 中最后写入。
+     * @return 正文MD5（十六进制）
+     */
+    public String writeData(InputStream in) {
         int startIndex = startPixel.getY() * img.getWidth() + startPixel.getX();
-        for (int i = 0; i < pixelsLenForData; i++) {
-            int dataStartIndex = i * 4;
-            int dataEndIndex = Math.min(dataStartIndex + 4, dataBits.length());
-            String rgbaBits = dataBits.substring(dataStartIndex,dataEndIndex);
-            img.getPixels()[startIndex + i] = buildPixel(img.getPixels()[startIndex + i], rgbaBits);
+        boolean sealable = Constants.FORMAT.equalsIgnoreCase(format);
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        // 每块的起点需落在像素边界上
+        int chunkBytes = STREAM_CHUNK_BYTES - STREAM_CHUNK_BYTES % LsbCodec.unitBytes(bitsPerChannel);
+        byte[] buffer = new byte[Math.min(dataLength, chunkBytes)];
+        int[] pixels = new int[LsbCodec.pixelsForBytes(buffer.length, bitsPerChannel)];
+        int[] original = delta ? new int[pixels.length] : null;
+        int written = 0;
+        while (written < dataLength) {
+            int len = readChunk(in, buffer, Math.min(buffer.length, dataLength - written));
+            if (len == 0) {
+                break;
+            }
+            md5.update(buffer, 0, len);
+
+            int index = startIndex + LsbCodec.pixelsForBytes(written, bitsPerChannel);
+            int pixelCount = LsbCodec.pixelsForBytes(len, bitsPerChannel);
+            try {
+                image.preload(index, pixelCount);
+                image.readPixels(index, pixels, 0, pixelCount);
+                if (delta) {
+                    System.arraycopy(pixels, 0, original, 0, pixelCount);
+                }
+                LsbCodec.embed(buffer, len, pixels, 0, bitsPerChannel, pool);
+                if (delta) {
+                    writeChangedPixels(index, pixels, original, pixelCount);
+                } else {
+                    image.writePixels(index, pixels, 0, pixelCount);
+                }
+                written += len;
+                if (sealable) {
+                    long sealBegin = System.nanoTime();
+                    image.seal(startIndex, startIndex + LsbCodec.pixelsForBytes(written, bitsPerChannel));
+                    sealNanos += System.nanoTime() - sealBegin;
+                }
+            } catch (IOException e) {
+                log.error("图片解码失败: {}", e.getMessage());
+                throw new BusinessException(ResponseCodeEnum.CODE_411);
+            }
         }
+        if (written == dataLength && hasRemaining(in)) {
+            log.error("数据长度超出预留的长度: {}字节", dataLength);
+            throw new BusinessException("图片容量不足");
+        }
+        if (written < dataLength) {
+            this.dataLength = written;
+            long endIndex = startIndex + LsbCodec.pixelsForBytes(written, bitsPerChannel) - 1;
+            this.endPixel = new Pixel((int) (endIndex % img.getWidth()), (int) (endIndex / img.getWidth()));
+        }
+        MetricsTools.recordPayload("write", dataLength);
+        return Hex.encodeHexString(md5.digest());
     }
 
-    private int buildPixel(int pixel, String rgbaBits) {
-        // 字符转换为整数
-        int rBit = rgbaBits.charAt(0) - '0';
-        int gBit = rgbaBits.charAt(1) - '0';
-        int bBit = rgbaBits.charAt(2) - '0';
-        int aBit = rgbaBits.charAt(3) - '0';
+    /**
+     * 只写入与原像素不同的连续区间，未变化的段不会被标记为需要重新编码
+     * 相距较近的区间合并写入，减少调用次数（相同的像素写回不影响结果）。
+     */
+    private void writeChangedPixels(int fromIndex, int[] pixels, int[] original, int count) throws IOException {
+        int runStart = -1;
+        int runEnd = -1;
+        for (int i = 0; i < count; i++) {
+            if (pixels[i] == original[i]) {
+                continue;
+            }
+            if (runStart >= 0 && i - runEnd > DELTA_MERGE_GAP) {
+                image.writePixels(fromIndex + runStart, pixels, runStart, runEnd - runStart);
+                runStart = -1;
+            }
+            if (runStart < 0) {
+                runStart = i;
+            }
+            runEnd = i + 1;
+        }
+        if (runStart >= 0) {
+            image.writePixels(fromIndex + runStart, pixels, runStart, runEnd - runStart);
+        }
+    }
 
-        int pixelR = ColorUtils.getR(pixel);
-        int pixelG = ColorUtils.getG(pixel);
-        int pixelB = ColorUtils.getB(pixel);
-        int pixelA = ColorUtils.getA(pixel);
+    /**
+     * @return 读取的字节数，小于 len 时已到流末尾
+     */
+    private static int readChunk(InputStream in, byte[] buffer, int len) {
+        try {
+            return in.readNBytes(buffer, 0, len);
+        } catch (IOException e) {
+            log.error("正文读取失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+    }
 
-        // 执行位运算
-        pixelR = ((pixelR & ~1) | rBit);
-        pixelG = ((pixelG & ~1) | gBit);
-        pixelB = ((pixelB & ~1) | bBit);
-        pixelA = ((pixelA & ~1) | aBit);
+    private static boolean hasRemaining(InputStream in) {
+        try {
+            return in.read() >= 0;
+        } catch (IOException e) {
+            log.error("正文读取失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+    }
 
-        return ColorUtils.argb(pixelA, pixelR, pixelG, pixelB);
+    public void genStartAndEnd(byte[] data) {
+        this.data = data;
+        genStartAndEnd(data.length);
     }
 
-    public void genStartAndEnd(String dataBits) {
-        this.dataBits = dataBits;
+    /**
+     * 按正文长度生成起止点，正文由 {@link #writeData} 流式写入
+     * @param dataLength 数据区中保存的字节数，长度事先未知时为其上限
+     */
+    public void genStartAndEnd(long dataLength) {
+        if (dataLength > img.getMaxStoredLen()) {
+            log.error("数据长度超出图片容量, 可用容量: {}字节, 数据长度: {}字节", img.getMaxStoredLen(), dataLength);
+            throw new BusinessException("图片容量不足");
+        }
+        this.dataLength = (int) dataLength;
 
-        int allPixelsLen = img.getWidth() * img.getHeight();
+        int width = img.getWidth();
+        int allPixelsLen = width * img.getHeight();
 
         int pixelsLenForHeader = (Constants.HEADER_LENGTH + 4 - 1) / 4;
-        int headerEndX = pixelsLenForHeader % img.getWidth() - 1;
-        int headerEndY = pixelsLenForHeader / img.getHeight();
 
-        int pixelsLenForData = dataBits.length() / 4;
+        int pixelsLenForData = LsbCodec.pixelsForBytes(this.dataLength, bitsPerChannel);
 
         int availablePixels = allPixelsLen - pixelsLenForHeader;
         if (availablePixels <= pixelsLenForData) {
@@ -115,46 +269,88 @@ public class ImgGen extends ImgTools {
             throw new BusinessException("图片容量不足");
         }
 
-        // 随机生成startPixel
-        int startIndex = 1 + new Random().nextInt(allPixelsLen - pixelsLenForHeader - pixelsLenForData);
+        // 随机生成起点，按线性下标计算，数据区从 Header 之后开始，与图片宽度无关
+        int startIndex = pixelsLenForHeader + new Random().nextInt(availablePixels - pixelsLenForData);
         int endIndex = startIndex + pixelsLenForData - 1;
 
-        // 计算startPixel
-        int startX;
-        int startY;
-        if ((startIndex + headerEndX + 1) <= img.getWidth()) {
-            startX = headerEndX + startIndex;
-            startY = headerEndY;
-        } else {
-            startX = (startIndex - (img.getWidth() - headerEndX - 1)) % img.getWidth() - 1;
-            startY = (startIndex - (img.getWidth() - headerEndX - 1)) / img.getWidth() + headerEndY + 1;
-        }
-        this.startPixel = new Pixel(startX, startY);
+        this.startPixel = new Pixel(startIndex % width, startIndex / width);
+        this.endPixel = new Pixel(endIndex % width, endIndex / width);
 
-        // 计算endPixel
-        int endX;
-        int endY;
-        if ((endIndex + headerEndX + 1) <= img.getWidth()) {
-            endX = headerEndX + endIndex;
-            endY = headerEndY;
-        } else {
-            endX = (endIndex - (img.getWidth() - headerEndX - 1)) % img.getWidth() - 1;
-            endY = (endIndex - (img.getWidth() - headerEndX - 1)) / img.getWidth() + headerEndY + 1;
-        }
-        this.endPixel = new Pixel(endX, endY);
+    }
 
+    /**
+     * 增量写入：沿用原笔记本的起点，新正文从该起点仍能放下时生效
+     * 生效后 {@link #writeData} 只写入发生变化的像素，未变化的段保存时直接复制原压缩数据。
+     * @param startPixel 原笔记本的起点
+     * @return 是否可以沿用，否则需调用 {@link #genStartAndEnd(long)} 重新生成起点
+     */
+    public boolean reuseStart(Pixel startPixel, long dataLength) {
+        if (startPixel == null || dataLength > img.getMaxStoredLen()) {
+            return false;
+        }
+        int width = img.getWidth();
+        long allPixelsLen = (long) width * img.getHeight();
+        int pixelsLenForHeader = (Constants.HEADER_LENGTH + 4 - 1) / 4;
+        long startIndex = (long) startPixel.getY() * width + startPixel.getX();
+        if (startPixel.getX() >= width || startIndex < pixelsLenForHeader
+                || startIndex + LsbCodec.pixelsForBytes((int) dataLength, bitsPerChannel) > allPixelsLen) {
+            return false;
+        }
+        this.dataLength = (int) dataLength;
+        long endIndex = startIndex + LsbCodec.pixelsForBytes(this.dataLength, bitsPerChannel) - 1;
+        this.startPixel = new Pixel(startPixel.getX(), startPixel.getY());
+        this.endPixel = new Pixel((int) (endIndex % width), (int) (endIndex / width));
+        this.delta = true;
+        return true;
     }
 
-    public void gen(HeaderBits headerBits, Pixel startPixel) {
+    /**
+     * 写入Header（及未流式写入的正文）并保存，起点取自 header
+     */
+    public void gen(Header header) {
 
-        this.headerBits = headerBits;
-        this.startPixel = startPixel;
+        this.header = header;
+        this.startPixel = header.getStartPixel();
 
-        insertHeader();
+        try {
+            insertHeader();
+
+            // 流式写入时正文已由 writeData 写入
+            if (data != null) {
+                insertData();
+            }
+        } catch (IOException e) {
+            log.error("图片解码失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_411);
+        }
 
-        insertData();
+        long begin = System.nanoTime();
+        if (Constants.FORMAT.equalsIgnoreCase(format)) {
+            try {
+                image.save(outputPath, fileSaver);
+            } catch (IOException e) {
+                log.error("图片保存失败: {}", e.getMessage());
+                throw new BusinessException(ResponseCodeEnum.CODE_412);
+            }
+        } else {
+            try {
+                saveImg(image.toBufferedImage(), outputPath, format, fileSaver);
+            } catch (IOException e) {
+                log.error("图片解码失败: {}", e.getMessage());
+                throw new BusinessException(ResponseCodeEnum.CODE_411);
+            }
+        }
+        // 起点前移已封存段的编码耗时，一次写入只记录一个样本
+        MetricsTools.recordStage(MetricsTools.STAGE_PNG_ENCODE, begin - sealNanos, img.getWidth(), img.getHeight(), dataLength);
+    }
 
-        saveImg(img, outputPath, format);
+    @Override
+    public void close() {
+        try {
+            image.close();
+        } catch (IOException e) {
+            log.warn("关闭图片文件失败: {}", e.getMessage());
+        }
     }
 
 }
@@ -1,62 +1,252 @@
 package com.imgnote.IMGNoteServer.ImgProcessor;
 
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
 import com.imgnote.IMGNoteServer.bean.Constants;
 import com.imgnote.IMGNoteServer.bean.Header;
 import com.imgnote.IMGNoteServer.bean.Img;
-import com.imgnote.IMGNoteServer.bean.NoteBook;
+import com.imgnote.IMGNoteServer.bean.PayloadConfig;
+import com.imgnote.IMGNoteServer.converter.HeaderCodec;
 import com.imgnote.IMGNoteServer.converter.HeaderParser;
 import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
 import com.imgnote.IMGNoteServer.exceptions.BusinessException;
-import com.imgnote.IMGNoteServer.utils.ColorUtils;
 import com.imgnote.IMGNoteServer.utils.ImgTools;
+import com.imgnote.IMGNoteServer.utils.MetricsTools;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
-public class ImgParser extends ImgTools {
+public class ImgParser extends ImgTools implements Closeable {
 
-    @Getter
-    private String headerBitsStr;
+    /**
+     * 数据块回调
+     */
+    @FunctionalInterface
+    public interface DataChunkConsumer {
+
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+
+    }
 
     @Getter
     private final Img img;
 
     private final Header header;
 
+    // 逐行读取器，仅解码所需的行；图片格式不受支持时为 null，回退到完整解码的 image
+    private final PngRowReader pngReader;
+
     private final BufferedImage image;
 
+    private final String imagePath;
+
+    // 数据区并行解码使用的线程池，为 null 时顺序解码
+    private final ForkJoinPool pool;
+
     public ImgParser(String imagePath, Header header) {
+        this(imagePath, header, null);
+    }
+
+    public ImgParser(String imagePath, Header header, ForkJoinPool pool) {
+        this(imagePath, header, pool, new PayloadConfig());
+    }
+
+    /**
+     * @param capacityConfig 计算图片容量时采用的写入配置，即下次写入时使用的配置
+     */
+    public ImgParser(String imagePath, Header header, ForkJoinPool pool, PayloadConfig capacityConfig) {
         this.header = header;
+        this.imagePath = imagePath;
+        this.pool = pool;
+        long begin = System.nanoTime();
         try {
-            this.image = ImageIO.read(new File(imagePath));
+            this.pngReader = PngRowReader.open(imagePath);
+            if (pngReader == null) {
+                this.image = ImageIO.read(new File(imagePath));
+                if (image == null) {
+                    throw new IOException("不支持的图片格式");
+                }
+                this.img = getImg(image.getWidth(), image.getHeight(), capacityConfig);
+            } else {
+                this.image = null;
+                this.img = getImg(pngReader.getWidth(), pngReader.getHeight(), capacityConfig);
+            }
         } catch (IOException e) {
             log.error("图片读取失败: {}", e.getMessage());
             throw new BusinessException(ResponseCodeEnum.CODE_411);
         }
-        this.img = getBasicImg(image);
-        parseHeader();
+        MetricsTools.recordStage(MetricsTools.STAGE_IMAGE_READ, begin, img.getWidth(), img.getHeight(), -1);
+        try {
+            parseHeader();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
     }
 
+    /**
+     * 解析Header：二进制 Header 按固定偏移解码并校验 CRC，第一版的二进制串 Header 按原方式解析
+     */
     public void parseHeader() {
+        long begin = System.nanoTime();
         int[] pixels = readPixelForHeader();
-        String headerBitsStr = extractStrFromPixels(pixels);
-        this.headerBitsStr = headerBitsStr;
-        HeaderParser headerParser = new HeaderParser(header, headerBitsStr);
+        ByteBuffer buffer = ByteBuffer.wrap(LsbCodec.extract(pixels, 0, Constants.HEADER_BYTES));
         try {
-            headerParser.parse();
+            if (HeaderCodec.isBinary(buffer)) {
+                HeaderCodec.decode(buffer, header);
+            } else {
+                new HeaderParser(header, extractStrFromPixels(pixels)).parse();
+            }
         } catch (Exception e) {
-            throw new BusinessException(ResponseCodeEnum.CODE_410, new NoteBook(img));
+            throw new BusinessException(ResponseCodeEnum.CODE_410, NoteBookVo.of(img));
         }
+        MetricsTools.recordStage(MetricsTools.STAGE_HEADER_PARSE, begin, img.getWidth(), img.getHeight(), -1);
     }
 
-    public String getDataBits() {
-        int[] pixels = readPixelForData();
-        return extractStrFromPixels(pixels);
+    public byte[] getData() {
+        long begin = System.nanoTime();
+        byte[] data;
+        if (StripeTask.isParallel(pool) && pngReader != null && pngReader.getSegmentIndex() != null) {
+            data = getDataBySegments();
+        } else {
+            int[] pixels = readPixelForData();
+            data = LsbCodec.extract(pixels, 0, getDataLength(), getBitsPerChannel(), pool);
+        }
+        MetricsTools.recordStage(MetricsTools.STAGE_DATA_EXTRACT, begin, img.getWidth(), img.getHeight(), data.length);
+        MetricsTools.recordPayload("read", data.length);
+        return data;
+    }
+
+    /**
+     * 数据区字节数
+     */
+    public int getDataLength() {
+        int width = img.getWidth();
+        int startIndex = header.getStartPixel().getY() * width + header.getStartPixel().getX();
+        int endIndex = header.getEndPixel().getY() * width + header.getEndPixel().getX();
+        if (endIndex < startIndex) {
+            return 0;
+        }
+        long bytes = LsbCodec.bytesForPixels(endIndex - startIndex + 1, getBitsPerChannel());
+        return (int) Math.max(0, bytes - (header.getPaddingBytes() == null ? 0 : header.getPaddingBytes()));
+    }
+
+    /**
+     * 数据区每个通道承载的位数
+     */
+    private int getBitsPerChannel() {
+        return header.getBitsPerChannel() == null ? 1 : header.getBitsPerChannel();
+    }
+
+    /**
+     * 读取数据区中 [offset, offset + length) 的字节，只解码这些字节所在的行
+     */
+    public byte[] readStoredBytes(int offset, int length) {
+        int width = img.getWidth();
+        int startIndex = header.getStartPixel().getY() * width + header.getStartPixel().getX();
+        int bitsPerChannel = getBitsPerChannel();
+        // 从 offset 之前最近的像素边界开始解码
+        int skip = offset % LsbCodec.unitBytes(bitsPerChannel);
+        int alignedOffset = offset - skip;
+        int[] pixels = new int[LsbCodec.pixelsForBytes(skip + length, bitsPerChannel)];
+        int pixelIndex = startIndex + LsbCodec.pixelsForBytes(alignedOffset, bitsPerChannel);
+        try {
+            if (pngReader == null) {
+                readPixels(image, pixelIndex, pixels, 0, pixels.length);
+            } else {
+                pngReader.readPixels(pixelIndex, pixels, 0, pixels.length);
+            }
+        } catch (IOException e) {
+            log.error("图片解码失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_411);
+        }
+        byte[] bytes = LsbCodec.extract(pixels, 0, skip + length, bitsPerChannel);
+        return skip == 0 ? bytes : Arrays.copyOfRange(bytes, skip, skip + length);
+    }
+
+    /**
+     * 读取分块布局数据区末尾的块索引表，先读尾部得到块数，再读全部条目
+     */
+    public ChunkTable readChunkTable() {
+        int dataLength = getDataLength();
+        try {
+            if (dataLength < ChunkTable.TRAILER_BYTES) {
+                throw new IllegalArgumentException("块索引表不完整");
+            }
+            int count = ChunkTable.readCount(readStoredBytes(dataLength - ChunkTable.TRAILER_BYTES, ChunkTable.TRAILER_BYTES));
+            if (count < 0 || count > (dataLength - ChunkTable.TRAILER_BYTES) / ChunkTable.ENTRY_BYTES) {
+                throw new IllegalArgumentException("块索引表不合法");
+            }
+            int tableLength = ChunkTable.byteLength(count);
+            byte[] tableBytes = readStoredBytes(dataLength - tableLength, tableLength);
+            return ChunkTable.parse(tableBytes, tableLength, dataLength);
+        } catch (IllegalArgumentException e) {
+            log.warn("块索引表解析失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_410, NoteBookVo.of(img));
+        }
+    }
+
+    /**
+     * 按段并行解码数据区
+     * 条带边界对齐到 PNG 分段的起始行，每个条带使用独立的读取器从所在段开始解压，
+     * 提取出的字节直接写入结果数组中对应的区间。
+     */
+    private byte[] getDataBySegments() {
+        int width = img.getWidth();
+        int startIndex = header.getStartPixel().getY() * width + header.getStartPixel().getX();
+        int byteLen = getDataLength();
+        if (byteLen <= 0) {
+            return new byte[0];
+        }
+
+        PngSegmentIndex segmentIndex = pngReader.getSegmentIndex();
+        int bitsPerChannel = getBitsPerChannel();
+        int unit = LsbCodec.unitBytes(bitsPerChannel);
+        int unitPixels = LsbCodec.pixelsForBytes(unit, bitsPerChannel);
+        int stripeLen = StripeTask.stripeLength(pool, byteLen, LsbCodec.MIN_STRIPE_BYTES);
+        int firstSegment = segmentIndex.segmentOf(startIndex / width);
+        int lastSegment = segmentIndex.segmentOf((startIndex + LsbCodec.pixelsForBytes(byteLen, bitsPerChannel) - 1) / width);
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (int segment = firstSegment + 1; segment <= lastSegment; segment++) {
+            long segmentStartIndex = (long) segmentIndex.getStartRow(segment) * width;
+            // 段起点之后第一个落在像素边界上的字节
+            int bound = (int) ((segmentStartIndex - startIndex + unitPixels - 1) / unitPixels * unit);
+            if (bound - bounds.get(bounds.size() - 1) >= stripeLen && bound < byteLen) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(byteLen);
+
+        byte[] data = new byte[byteLen];
+        try {
+            StripeTask.invoke(pool, bounds.size() - 1, stripe -> {
+                int from = bounds.get(stripe);
+                int to = bounds.get(stripe + 1);
+                int[] pixels = new int[LsbCodec.pixelsForBytes(to - from, bitsPerChannel)];
+                try (PngRowReader reader = PngRowReader.open(imagePath)) {
+                    if (reader == null) {
+                        throw new IOException("图片已被修改");
+                    }
+                    reader.readPixels(startIndex + LsbCodec.pixelsForBytes(from, bitsPerChannel), pixels, 0, pixels.length);
+                }
+                LsbCodec.extract(pixels, 0, data, from, to - from, bitsPerChannel);
+            });
+        } catch (IOException e) {
+            log.error("图片解码失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_411);
+        }
+        return data;
     }
 
     public int[] readPixelForData() {
@@ -65,33 +255,57 @@ public class ImgParser extends ImgTools {
         int endX = header.getEndPixel().getX();
         int endY = header.getEndPixel().getY();
 
-        return getPixelRangeInfo(image, startX, startY, endX, endY);
+        return readPixelRange(startX, startY, endX, endY);
     }
 
     public int[] readPixelForHeader() {
         int pixelsLenForHeader = (Constants.HEADER_LENGTH + 4 - 1) / 4;
-        int endX = pixelsLenForHeader % img.getWidth() - 1;
-        int endY = pixelsLenForHeader / img.getHeight();
+        int endX = (pixelsLenForHeader - 1) % img.getWidth();
+        int endY = (pixelsLenForHeader - 1) / img.getWidth();
+
+        return readPixelRange(0, 0, endX, endY);
+    }
 
-        return getPixelRangeInfo(image, 0, 0, endX, endY);
+    private int[] readPixelRange(int startX, int startY, int endX, int endY) {
+        if (pngReader == null) {
+            return getPixelRangeInfo(image, startX, startY, endX, endY);
+        }
+        int width = img.getWidth();
+        int[] pixelList = new int[(endY - startY) * width + endX - startX + 1];
+        try {
+            pngReader.readPixels(startY * width + startX, pixelList, 0, pixelList.length);
+        } catch (IOException e) {
+            log.error("图片解码失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_411);
+        }
+        return pixelList;
     }
 
     public String extractStrFromPixels(int[] pixels) {
-        StringBuilder str = new StringBuilder();
+        StringBuilder str = new StringBuilder(pixels.length * 4);
 
         for (int pixel : pixels) {
-            int pixelR = ColorUtils.getR(pixel);
-            int pixelG = ColorUtils.getG(pixel);
-            int pixelB = ColorUtils.getB(pixel);
-            int pixelA = ColorUtils.getA(pixel);
-
-            str.append(pixelR & 1);
-            str.append(pixelG & 1);
-            str.append(pixelB & 1);
-            str.append(pixelA & 1);
+            int nibble = LsbCodec.extractNibble(pixel);
+
+            str.append((nibble >> 3) & 1);
+            str.append((nibble >> 2) & 1);
+            str.append((nibble >> 1) & 1);
+            str.append(nibble & 1);
         }
 
         return str.toString();
     }
 
+    @Override
+    public void close() {
+        if (pngReader == null) {
+            return;
+        }
+        try {
+            pngReader.close();
+        } catch (IOException e) {
+            log.warn("关闭图片文件失败: {}", e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,412 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * LSB 编解码器
+ * 每个像素的 R、G、B、A 四个通道最低位依次承载 1 bit，即 1 像素 = 4 bit（半字节），1 字节 = 2 像素。
+ * 位序与原 '0'/'1' 字符串管线保持一致：字节高位在前，半字节内按 R、G、B、A 顺序排列。
+ * JVM 以 --add-modules jdk.incubator.vector 启动且硬件支持 256 位向量时，批量编解码使用 {@link LsbVectorKernel}，
+ * 否则使用标量实现；可通过 -Dimgnote.lsb.vector=false 强制使用标量实现。
+ * <p>
+ * 带 bitsPerChannel 参数的方法每个通道承载 1-4 bit（1 像素 = 4-16 bit），比特流按字节高位在前依次填入像素，
+ * 像素内 R 在最高位、A 在最低位，通道内高位在前；每通道 1 bit 时与上述格式相同。
+ * 字节偏移为 {@link #unitBytes} 的整数倍时才落在像素边界上。
+ */
+@Slf4j
+public class LsbCodec {
+
+    // 四个通道的最低位掩码
+    private static final int LSB_MASK = 0x01010101;
+
+    // 并行编解码时每个条带的最小字节数，过小的条带调度开销大于收益
+    public static final int MIN_STRIPE_BYTES = 256 * 1024;
+
+    // 半字节 -> 通道最低位分布
+    private static final int[] NIBBLE_TO_BITS = new int[16];
+
+    // 是否使用向量内核
+    private static final boolean VECTORIZED = detectVectorKernel();
+
+    // 每通道 2 位：1 字节 -> 1 像素的通道低位分布
+    private static final int[] SPREAD_2 = new int[1 << 8];
+
+    // 每通道 3 位：12 bit -> 1 像素的通道低位分布
+    private static final int[] SPREAD_3 = new int[1 << 12];
+
+    // 每通道 4 位：2 字节 -> 1 像素，高字节承载 R、G，低字节承载 B、A
+    private static final int[] SPREAD_4_HIGH = new int[1 << 8];
+
+    private static final int[] SPREAD_4_LOW = new int[1 << 8];
+
+    static {
+        for (int nibble = 0; nibble < 16; nibble++) {
+            NIBBLE_TO_BITS[nibble] = ((nibble >> 3) & 1) << 16    // R
+                    | ((nibble >> 2) & 1) << 8                     // G
+                    | ((nibble >> 1) & 1)                          // B
+                    | (nibble & 1) << 24;                          // A
+        }
+        for (int value = 0; value < SPREAD_2.length; value++) {
+            SPREAD_2[value] = spread(value, 2);
+            SPREAD_4_HIGH[value] = spread(value << 8, 4);
+            SPREAD_4_LOW[value] = spread(value, 4);
+        }
+        for (int value = 0; value < SPREAD_3.length; value++) {
+            SPREAD_3[value] = spread(value, 3);
+        }
+    }
+
+    private static boolean detectVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("imgnote.lsb.vector", "true"))) {
+            return false;
+        }
+        // 孵化模块默认不解析，未通过 --add-modules 加入时不能加载向量内核
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            boolean supported = LsbVectorKernel.isSupported();
+            log.info("LSB 编解码{}使用 Vector API 内核", supported ? "" : "不");
+            return supported;
+        } catch (LinkageError e) {
+            log.warn("Vector API 内核加载失败, 使用标量实现: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 是否使用向量内核
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * 计算承载指定字节数所需的像素数
+     */
+    public static int pixelsForBytes(int byteLen) {
+        return byteLen * 2;
+    }
+
+    /**
+     * 每通道 bitsPerChannel 位时承载指定字节数所需的像素数，末尾像素可能只用到一部分
+     */
+    public static int pixelsForBytes(int byteLen, int bitsPerChannel) {
+        int bitsPerPixel = bitsPerChannel * 4;
+        return (int) (((long) byteLen * 8 + bitsPerPixel - 1) / bitsPerPixel);
+    }
+
+    /**
+     * 指定像素数能承载的完整字节数
+     */
+    public static long bytesForPixels(long pixelCount, int bitsPerChannel) {
+        return pixelCount * bitsPerChannel * 4 / 8;
+    }
+
+    /**
+     * 写入指定字节数后末尾像素中多出的完整字节数，读取时需从数据区长度中扣除
+     */
+    public static int paddingBytes(int byteLen, int bitsPerChannel) {
+        return (int) (bytesForPixels(pixelsForBytes(byteLen, bitsPerChannel), bitsPerChannel) - byteLen);
+    }
+
+    /**
+     * 字节与像素边界对齐的最小字节数：每通道 1、2 位为 1 字节，3 位为 3 字节（2 像素），4 位为 2 字节（1 像素）
+     */
+    public static int unitBytes(int bitsPerChannel) {
+        int bitsPerPixel = bitsPerChannel * 4;
+        return bitsPerPixel / gcd(8, bitsPerPixel);
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // 每个通道最低 bitsPerChannel 位的掩码
+    private static int channelMask(int bitsPerChannel) {
+        return ((1 << bitsPerChannel) - 1) * 0x01010101;
+    }
+
+    // 像素承载的 4 * bitsPerChannel 位 -> 通道低位分布
+    private static int spread(int value, int bitsPerChannel) {
+        int mask = (1 << bitsPerChannel) - 1;
+        return ((value >> (bitsPerChannel * 3)) & mask) << 16     // R
+                | ((value >> (bitsPerChannel * 2)) & mask) << 8   // G
+                | ((value >> bitsPerChannel) & mask)              // B
+                | (value & mask) << 24;                           // A
+    }
+
+    // 通道低位 -> 像素承载的 4 * bitsPerChannel 位
+    private static int gather(int pixel, int bitsPerChannel) {
+        int mask = (1 << bitsPerChannel) - 1;
+        return ((pixel >> 16) & mask) << (bitsPerChannel * 3)
+                | ((pixel >> 8) & mask) << (bitsPerChannel * 2)
+                | (pixel & mask) << bitsPerChannel
+                | ((pixel >>> 24) & mask);
+    }
+
+    /**
+     * 将半字节写入像素最低位
+     */
+    public static int embedNibble(int pixel, int nibble) {
+        return (pixel & ~LSB_MASK) | NIBBLE_TO_BITS[nibble & 0xF];
+    }
+
+    /**
+     * 从像素最低位读取半字节
+     */
+    public static int extractNibble(int pixel) {
+        return ((pixel >> 13) & 0b1000)
+                | ((pixel >> 6) & 0b0100)
+                | ((pixel << 1) & 0b0010)
+                | ((pixel >>> 24) & 0b0001);
+    }
+
+    /**
+     * 将字节数组写入像素数组
+     * @param data 数据
+     * @param pixels 像素数组
+     * @param pixelOffset 起始像素下标
+     */
+    public static void embed(byte[] data, int[] pixels, int pixelOffset) {
+        embed(data, 0, data.length, pixels, pixelOffset);
+    }
+
+    public static void embed(byte[] data, int dataOffset, int dataLen, int[] pixels, int pixelOffset) {
+        if (VECTORIZED) {
+            int done = LsbVectorKernel.embed(data, dataOffset, dataLen, pixels, pixelOffset);
+            dataOffset += done;
+            dataLen -= done;
+            pixelOffset += pixelsForBytes(done);
+        }
+        int p = pixelOffset;
+        int end = dataOffset + dataLen;
+        for (int i = dataOffset; i < end; i++) {
+            int b = data[i];
+            pixels[p] = (pixels[p] & ~LSB_MASK) | NIBBLE_TO_BITS[(b >> 4) & 0xF];
+            p++;
+            pixels[p] = (pixels[p] & ~LSB_MASK) | NIBBLE_TO_BITS[b & 0xF];
+            p++;
+        }
+    }
+
+    /**
+     * 每通道写入 bitsPerChannel 位，末尾不足一个像素的部分低位补 0
+     * @param pixelOffset 起始像素下标，需对应 {@link #unitBytes} 对齐的字节偏移
+     */
+    public static void embed(byte[] data, int dataOffset, int dataLen, int[] pixels, int pixelOffset, int bitsPerChannel) {
+        if (bitsPerChannel == 1) {
+            embed(data, dataOffset, dataLen, pixels, pixelOffset);
+            return;
+        }
+        int mask = channelMask(bitsPerChannel);
+        int p = pixelOffset;
+        int end = dataOffset + dataLen;
+        // 完整的对齐单元查表写入，末尾不足一个单元的部分逐位写入
+        int unitEnd = end - dataLen % unitBytes(bitsPerChannel);
+        int i = dataOffset;
+        switch (bitsPerChannel) {
+            case 2:
+                for (; i < unitEnd; i++, p++) {
+                    pixels[p] = (pixels[p] & ~mask) | SPREAD_2[data[i] & 0xFF];
+                }
+                break;
+            case 3:
+                for (; i < unitEnd; i += 3, p += 2) {
+                    int value = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+                    pixels[p] = (pixels[p] & ~mask) | SPREAD_3[value >>> 12];
+                    pixels[p + 1] = (pixels[p + 1] & ~mask) | SPREAD_3[value & 0xFFF];
+                }
+                break;
+            default:
+                for (; i < unitEnd; i += 2, p++) {
+                    pixels[p] = (pixels[p] & ~mask) | SPREAD_4_HIGH[data[i] & 0xFF] | SPREAD_4_LOW[data[i + 1] & 0xFF];
+                }
+                break;
+        }
+        embedBits(data, i, end, pixels, p, bitsPerChannel);
+    }
+
+    private static void embedBits(byte[] data, int from, int end, int[] pixels, int p, int bitsPerChannel) {
+        int bitsPerPixel = bitsPerChannel * 4;
+        int mask = channelMask(bitsPerChannel);
+        long acc = 0;
+        int bits = 0;
+        for (int i = from; i < end; i++) {
+            acc = acc << 8 | (data[i] & 0xFF);
+            bits += 8;
+            while (bits >= bitsPerPixel) {
+                bits -= bitsPerPixel;
+                pixels[p] = (pixels[p] & ~mask) | spread((int) (acc >>> bits), bitsPerChannel);
+                p++;
+            }
+            acc &= (1L << bits) - 1;
+        }
+        if (bits > 0) {
+            pixels[p] = (pixels[p] & ~mask) | spread((int) (acc << (bitsPerPixel - bits)), bitsPerChannel);
+        }
+    }
+
+    /**
+     * 每通道读取 bitsPerChannel 位
+     * @param pixelOffset 起始像素下标，需对应 {@link #unitBytes} 对齐的字节偏移
+     */
+    public static void extract(int[] pixels, int pixelOffset, byte[] data, int dataOffset, int byteLen, int bitsPerChannel) {
+        if (bitsPerChannel == 1) {
+            extract(pixels, pixelOffset, data, dataOffset, byteLen);
+            return;
+        }
+        int p = pixelOffset;
+        int end = dataOffset + byteLen;
+        int unitEnd = end - byteLen % unitBytes(bitsPerChannel);
+        int i = dataOffset;
+        switch (bitsPerChannel) {
+            case 2:
+                for (; i < unitEnd; i++, p++) {
+                    data[i] = (byte) gather(pixels[p], 2);
+                }
+                break;
+            case 3:
+                for (; i < unitEnd; i += 3, p += 2) {
+                    int value = gather(pixels[p], 3) << 12 | gather(pixels[p + 1], 3);
+                    data[i] = (byte) (value >>> 16);
+                    data[i + 1] = (byte) (value >>> 8);
+                    data[i + 2] = (byte) value;
+                }
+                break;
+            default:
+                for (; i < unitEnd; i += 2, p++) {
+                    int value = gather(pixels[p], 4);
+                    data[i] = (byte) (value >>> 8);
+                    data[i + 1] = (byte) value;
+                }
+                break;
+        }
+        extractBits(pixels, p, data, i, end, bitsPerChannel);
+    }
+
+    private static void extractBits(int[] pixels, int p, byte[] data, int from, int end, int bitsPerChannel) {
+        int bitsPerPixel = bitsPerChannel * 4;
+        long acc = 0;
+        int bits = 0;
+        for (int i = from; i < end; i++) {
+            while (bits < 8) {
+                acc = acc << bitsPerPixel | gather(pixels[p++], bitsPerChannel);
+                bits += bitsPerPixel;
+            }
+            bits -= 8;
+            data[i] = (byte) (acc >>> bits);
+            acc &= (1L << bits) - 1;
+        }
+    }
+
+    public static byte[] extract(int[] pixels, int pixelOffset, int byteLen, int bitsPerChannel) {
+        byte[] data = new byte[byteLen];
+        extract(pixels, pixelOffset, data, 0, byteLen, bitsPerChannel);
+        return data;
+    }
+
+    /**
+     * 从像素数组读取字节数组
+     * @param pixels 像素数组
+     * @param pixelOffset 起始像素下标
+     * @param byteLen 读取字节数
+     */
+    public static byte[] extract(int[] pixels, int pixelOffset, int byteLen) {
+        byte[] data = new byte[byteLen];
+        extract(pixels, pixelOffset, data, 0, byteLen);
+        return data;
+    }
+
+    public static void extract(int[] pixels, int pixelOffset, byte[] data, int dataOffset, int byteLen) {
+        if (VECTORIZED) {
+            int done = LsbVectorKernel.extract(pixels, pixelOffset, data, dataOffset, byteLen);
+            dataOffset += done;
+            byteLen -= done;
+            pixelOffset += pixelsForBytes(done);
+        }
+        int p = pixelOffset;
+        int end = dataOffset + byteLen;
+        for (int i = dataOffset; i < end; i++) {
+            data[i] = (byte) (extractNibble(pixels[p]) << 4 | extractNibble(pixels[p + 1]));
+            p += 2;
+        }
+    }
+
+    /**
+     * 按条带并行写入，每个条带只修改自己负责的像素区间
+     * @param pool 为 null 时顺序执行
+     */
+    public static void embed(byte[] data, int[] pixels, int pixelOffset, ForkJoinPool pool) {
+        embed(data, data.length, pixels, pixelOffset, pool);
+    }
+
+    /**
+     * 按条带并行写入 data 的前 dataLen 个字节
+     */
+    public static void embed(byte[] data, int dataLen, int[] pixels, int pixelOffset, ForkJoinPool pool) {
+        int stripeLen = StripeTask.stripeLength(pool, dataLen, MIN_STRIPE_BYTES);
+        int stripeCount = (dataLen + stripeLen - 1) / stripeLen;
+        invoke(pool, stripeCount, stripe -> {
+            int from = stripe * stripeLen;
+            int len = Math.min(stripeLen, dataLen - from);
+            embed(data, from, len, pixels, pixelOffset + pixelsForBytes(from));
+        });
+    }
+
+    /**
+     * 按条带并行读取，每个条带直接写入输出数组中对应的区间
+     * @param pool 为 null 时顺序执行
+     */
+    public static byte[] extract(int[] pixels, int pixelOffset, int byteLen, ForkJoinPool pool) {
+        return extract(pixels, pixelOffset, byteLen, 1, pool);
+    }
+
+    /**
+     * 每通道 bitsPerChannel 位，按条带并行写入 data 的前 dataLen 个字节，条带边界与像素边界对齐
+     */
+    public static void embed(byte[] data, int dataLen, int[] pixels, int pixelOffset, int bitsPerChannel, ForkJoinPool pool) {
+        int stripeLen = alignedStripeLength(pool, dataLen, bitsPerChannel);
+        int stripeCount = (dataLen + stripeLen - 1) / stripeLen;
+        invoke(pool, stripeCount, stripe -> {
+            int from = stripe * stripeLen;
+            int len = Math.min(stripeLen, dataLen - from);
+            embed(data, from, len, pixels, pixelOffset + pixelsForBytes(from, bitsPerChannel), bitsPerChannel);
+        });
+    }
+
+    /**
+     * 每通道 bitsPerChannel 位，按条带并行读取，条带边界与像素边界对齐
+     */
+    public static byte[] extract(int[] pixels, int pixelOffset, int byteLen, int bitsPerChannel, ForkJoinPool pool) {
+        byte[] data = new byte[byteLen];
+        int stripeLen = alignedStripeLength(pool, byteLen, bitsPerChannel);
+        int stripeCount = (byteLen + stripeLen - 1) / stripeLen;
+        invoke(pool, stripeCount, stripe -> {
+            int from = stripe * stripeLen;
+            int len = Math.min(stripeLen, byteLen - from);
+            extract(pixels, pixelOffset + pixelsForBytes(from, bitsPerChannel), data, from, len, bitsPerChannel);
+        });
+        return data;
+    }
+
+    private static int alignedStripeLength(ForkJoinPool pool, int byteLen, int bitsPerChannel) {
+        int unit = unitBytes(bitsPerChannel);
+        int stripeLen = StripeTask.stripeLength(pool, byteLen, MIN_STRIPE_BYTES);
+        return Math.max(unit, stripeLen - stripeLen % unit);
+    }
+
+    private static void invoke(ForkJoinPool pool, int stripeCount, StripeTask.StripeAction action) {
+        try {
+            StripeTask.invoke(pool, stripeCount, action);
+        } catch (IOException e) {
+            // 纯内存运算不会抛出
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 Vector API（jdk.incubator.vector）的 LSB 编解码内核
+ * 固定使用 256 位向量：一次处理 16 个像素 / 8 个字节，不足一组的尾部返回给调用方用标量处理。
+ * 只有在 JVM 以 --add-modules jdk.incubator.vector 启动时才会被加载，由 {@link LsbCodec} 负责选择。
+ */
+final class LsbVectorKernel {
+
+    private static final VectorSpecies<Integer> INT_256 = IntVector.SPECIES_256;
+
+    private static final VectorSpecies<Long> LONG_256 = LongVector.SPECIES_256;
+
+    private static final VectorSpecies<Byte> BYTE_64 = ByteVector.SPECIES_64;
+
+    // 每组处理的字节数
+    static final int BYTES_PER_STEP = 8;
+
+    private static final int LSB_MASK = 0x01010101;
+
+    // 每个字节复制到相邻两个像素通道
+    private static final VectorShuffle<Integer> LOW_HALF = VectorShuffle.fromValues(INT_256, 0, 0, 1, 1, 2, 2, 3, 3);
+
+    private static final VectorShuffle<Integer> HIGH_HALF = VectorShuffle.fromValues(INT_256, 4, 4, 5, 5, 6, 6, 7, 7);
+
+    // 偶数像素取高半字节，奇数像素取低半字节
+    private static final IntVector NIBBLE_SHIFT = IntVector.fromArray(INT_256, new int[]{4, 0, 4, 0, 4, 0, 4, 0}, 0);
+
+    private LsbVectorKernel() {
+    }
+
+    /**
+     * 当前平台是否有 256 位向量的硬件支持，否则向量运算会退化为更慢的软件实现
+     */
+    static boolean isSupported() {
+        return IntVector.SPECIES_PREFERRED.vectorBitSize() >= 256;
+    }
+
+    /**
+     * 写入整组的字节
+     * @return 已处理的字节数，剩余部分由调用方处理
+     */
+    static int embed(byte[] data, int dataOffset, int dataLen, int[] pixels, int pixelOffset) {
+        int steps = dataLen / BYTES_PER_STEP;
+        for (int s = 0; s < steps; s++) {
+            int d = dataOffset + s * BYTES_PER_STEP;
+            int p = pixelOffset + s * BYTES_PER_STEP * 2;
+            IntVector bytes = (IntVector) ByteVector.fromArray(BYTE_64, data, d)
+                    .convertShape(VectorOperators.B2I, INT_256, 0);
+            embedHalf(bytes.rearrange(LOW_HALF), pixels, p);
+            embedHalf(bytes.rearrange(HIGH_HALF), pixels, p + INT_256.length());
+        }
+        return steps * BYTES_PER_STEP;
+    }
+
+    private static void embedHalf(IntVector bytes, int[] pixels, int p) {
+        IntVector nibble = bytes.lanewise(VectorOperators.LSHR, NIBBLE_SHIFT).and(0xF);
+        // 半字节按 R、G、B、A 分布到四个通道的最低位
+        IntVector bits = nibble.and(0b1000).lanewise(VectorOperators.LSHL, 13)
+                .or(nibble.and(0b0100).lanewise(VectorOperators.LSHL, 6))
+                .or(nibble.and(0b0010).lanewise(VectorOperators.LSHR, 1))
+                .or(nibble.and(0b0001).lanewise(VectorOperators.LSHL, 24));
+        IntVector.fromArray(INT_256, pixels, p).and(~LSB_MASK).or(bits).intoArray(pixels, p);
+    }
+
+    /**
+     * 读取整组的字节
+     * @return 已处理的字节数，剩余部分由调用方处理
+     */
+    static int extract(int[] pixels, int pixelOffset, byte[] data, int dataOffset, int byteLen) {
+        int steps = byteLen / BYTES_PER_STEP;
+        for (int s = 0; s < steps; s++) {
+            int p = pixelOffset + s * BYTES_PER_STEP * 2;
+            ByteVector low = extractHalf(pixels, p).convertShape(VectorOperators.L2B, BYTE_64, 0).reinterpretAsBytes();
+            ByteVector high = extractHalf(pixels, p + INT_256.length()).convertShape(VectorOperators.L2B, BYTE_64, -1).reinterpretAsBytes();
+            low.or(high).intoArray(data, dataOffset + s * BYTES_PER_STEP);
+        }
+        return steps * BYTES_PER_STEP;
+    }
+
+    /**
+     * 8 个像素 -> 4 个字节，每个字节位于一个 long 通道的低 8 位
+     */
+    private static LongVector extractHalf(int[] pixels, int p) {
+        IntVector pixel = IntVector.fromArray(INT_256, pixels, p);
+        IntVector nibble = pixel.lanewise(VectorOperators.LSHR, 13).and(0b1000)
+                .or(pixel.lanewise(VectorOperators.LSHR, 6).and(0b0100))
+                .or(pixel.lanewise(VectorOperators.LSHL, 1).and(0b0010))
+                .or(pixel.lanewise(VectorOperators.LSHR, 24).and(0b0001));
+        // 相邻两个像素组成一个 long：低 32 位为高半字节，高 32 位为低半字节
+        LongVector pair = (LongVector) nibble.reinterpretShape(LONG_256, 0);
+        return pair.and(0xF).lanewise(VectorOperators.LSHL, 4).or(pair.lanewise(VectorOperators.LSHR, 32));
+    }
+
+}
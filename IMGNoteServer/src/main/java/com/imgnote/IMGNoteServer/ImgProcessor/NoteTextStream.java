@@ -0,0 +1,148 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Img;
+import com.imgnote.IMGNoteServer.cache.CachedNoteBook;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import lombok.Getter;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 笔记本正文流
+ * 打开时在图片读锁内一次取出数据区的原始字节，输出时不再访问图片；
+ * 正文按块解压，经增量 CharsetDecoder 转为文本后逐块回调，跨块的多字节字符留到下一块。
+ * 命中缓存时直接按块切分已解码的文本。
+ */
+public class NoteTextStream {
+
+    /**
+     * 文本块回调
+     */
+    @FunctionalInterface
+    public interface TextChunkConsumer {
+
+        void accept(String text) throws IOException;
+
+    }
+
+    @Getter
+    private final Header header;
+
+    @Getter
+    private final Img img;
+
+    // 正文字节数
+    @Getter
+    private final long dataLength;
+
+    // 未命中缓存时数据区的原始字节
+    private final byte[] stored;
+
+    // 分块布局的块索引表，连续布局时为 null
+    private final ChunkTable chunkTable;
+
+    // 命中缓存时的笔记本
+    private final CachedNoteBook noteBook;
+
+    private NoteTextStream(Header header, Img img, long dataLength, byte[] stored, ChunkTable chunkTable,
+                           CachedNoteBook noteBook) {
+        this.header = header;
+        this.img = img;
+        this.dataLength = dataLength;
+        this.stored = stored;
+        this.chunkTable = chunkTable;
+        this.noteBook = noteBook;
+    }
+
+    /**
+     * 从已解析Header的解析器取出块索引表与数据区字节，返回后解析器即可关闭
+     */
+    public static NoteTextStream of(ImgParser parser, Header header) {
+        if (header.getLayout() == DataLayoutEnum.CHUNKED) {
+            // 正文字节数记录在块索引表中
+            ChunkTable chunkTable = parser.readChunkTable();
+            return new NoteTextStream(header, parser.getImg(), chunkTable.getRawLength(), parser.getData(), chunkTable, null);
+        }
+        byte[] stored = parser.getData();
+        return new NoteTextStream(header, parser.getImg(), stored.length, stored, null, null);
+    }
+
+    /**
+     * 从缓存的笔记本读取
+     */
+    public static NoteTextStream of(CachedNoteBook noteBook) {
+        return new NoteTextStream(noteBook.getHeader(), noteBook.getImg(), noteBook.getDataLength(), null, null, noteBook);
+    }
+
+    /**
+     * 按块读取正文
+     * @param chunkBytes 每块字节数（命中缓存时为每块字符数）
+     * @return 正文MD5是否与Header一致
+     */
+    public boolean readText(int chunkBytes, TextChunkConsumer consumer) throws IOException {
+        if (noteBook != null) {
+            String data = noteBook.getData();
+            int from = 0;
+            while (from < data.length()) {
+                int end = Math.min(data.length(), from + chunkBytes);
+                // 不拆开代理对
+                if (end < data.length() && Character.isHighSurrogate(data.charAt(end - 1))) {
+                    end--;
+                }
+                consumer.accept(data.substring(from, end));
+                from = end;
+            }
+            return Boolean.TRUE.equals(noteBook.getIsDataComplete());
+        }
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // 多留 3 字节容纳上一块剩余的不完整字符
+        ByteBuffer in = ByteBuffer.allocate(chunkBytes + 3);
+        CharBuffer out = CharBuffer.allocate(chunkBytes + 3);
+        ImgParser.DataChunkConsumer textDecoder = (buffer, offset, length) -> {
+            in.put(buffer, offset, length).flip();
+            decoder.decode(in, out, false);
+            in.compact();
+            emit(out, consumer);
+        };
+        if (chunkTable != null) {
+            // 分块布局按索引表逐块还原，末尾的索引表只参与 MD5 计算
+            PayloadCodec.ChunkedReader chunkedReader = new PayloadCodec.ChunkedReader(
+                    chunkTable, header.getCompression(), chunkBytes, textDecoder);
+            try {
+                for (int from = 0; from < stored.length; from += chunkBytes) {
+                    chunkedReader.accept(stored, from, Math.min(chunkBytes, stored.length - from));
+                }
+            } finally {
+                chunkedReader.end();
+            }
+        } else {
+            for (int from = 0; from < stored.length; from += chunkBytes) {
+                textDecoder.accept(stored, from, Math.min(chunkBytes, stored.length - from));
+            }
+        }
+        in.flip();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        emit(out, consumer);
+        return DigestUtils.md5Hex(stored).equals(header.getDataMd5());
+    }
+
+    private static void emit(CharBuffer out, TextChunkConsumer consumer) throws IOException {
+        out.flip();
+        if (out.hasRemaining()) {
+            consumer.accept(out.toString());
+        }
+        out.clear();
+    }
+
+}
@@ -0,0 +1,424 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 正文压缩与分块
+ * 正文按 chunkSize 切分后逐块压缩（或原样保存），数据区末尾追加 {@link ChunkTable}，
+ * 读取时可只解码需要的块。Header 中的 MD5 按数据区中保存的全部字节（含索引表）计算。
+ */
+@Slf4j
+public class PayloadCodec {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private PayloadCodec() {
+    }
+
+    /**
+     * 逐块压缩的分块正文：每次只读取并压缩一块，压缩结果输出后再处理下一块，最后输出索引表
+     * 内存中只保留一块正文与其压缩结果，压缩后的总长度在输出结束前未知，不超过 {@link #storedBound}。
+     */
+    public static InputStream compressedStream(InputStream in, long length, int chunkSize) {
+        return new CompressedInputStream(in, length, chunkSize);
+    }
+
+    /**
+     * 不压缩的分块正文：原样输出正文，同时计算各块 CRC，最后输出索引表，正文不需要整体读入内存
+     */
+    public static InputStream chunkedStream(InputStream in, long length, int chunkSize) {
+        return new ChunkedInputStream(in, length, chunkSize);
+    }
+
+    /**
+     * 不压缩的分块正文在数据区中占用的字节数
+     */
+    public static long chunkedStoredLength(long length, int chunkSize) {
+        return length + ChunkTable.byteLength(ChunkTable.chunkCount(length, chunkSize));
+    }
+
+    /**
+     * 分块正文在数据区中最多占用的字节数：不压缩时即实际长度，压缩时按每块压缩后的上限计算
+     */
+    public static long storedBound(long length, CompressionEnum compression, int chunkSize) {
+        if (compression != CompressionEnum.DEFLATE) {
+            return chunkedStoredLength(length, chunkSize);
+        }
+        long fullChunks = length / chunkSize;
+        int lastChunk = (int) (length % chunkSize);
+        long bound = fullChunks * deflateBound(chunkSize) + (lastChunk > 0 ? deflateBound(lastChunk) : 0);
+        return bound + ChunkTable.byteLength(ChunkTable.chunkCount(length, chunkSize));
+    }
+
+    /**
+     * 数据区容量一定能写下的正文字节数，即 {@link #storedBound} 不超过容量的最大正文长度
+     */
+    public static long maxContentLength(long maxStoredLen, CompressionEnum compression, int chunkSize) {
+        long low = 0;
+        long high = maxStoredLen;
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            if (storedBound(mid, compression, chunkSize) <= maxStoredLen) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 单块压缩后的最大字节数（含 zlib 头尾），与 zlib 的 deflateBound 一致，无法压缩的数据按存储块输出
+     */
+    static int deflateBound(int length) {
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    /**
+     * 按 Header 中的布局与压缩方式还原全部正文
+     * 数据损坏时返回能还原的部分，完整性由 MD5 判断。
+     */
+    public static byte[] decode(Header header, byte[] stored) {
+        // 连续布局只用于第一版 Header，正文不压缩
+        if (header.getLayout() != DataLayoutEnum.CHUNKED) {
+            return stored;
+        }
+        ChunkTable table;
+        try {
+            table = ChunkTable.parse(stored, stored.length, stored.length);
+        } catch (IllegalArgumentException e) {
+            log.warn("块索引表解析失败: {}", e.getMessage());
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(table.getRawLength(), Integer.MAX_VALUE - 8));
+        for (int chunk = 0; chunk < table.getCount(); chunk++) {
+            out.writeBytes(decodeChunk(header.getCompression(), stored, table.getOffset(chunk),
+                    table.getLength(chunk), table.getRawLength(chunk)));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 还原单个块，数据损坏时返回已解压的部分
+     * @param rawLength 块对应的正文字节数
+     */
+    public static byte[] decodeChunk(CompressionEnum compression, byte[] stored, int offset, int length, int rawLength) {
+        if (compression != CompressionEnum.DEFLATE) {
+            byte[] chunk = new byte[length];
+            System.arraycopy(stored, offset, chunk, 0, length);
+            return chunk;
+        }
+        Inflater inflater = new Inflater();
+        byte[] chunk = new byte[rawLength];
+        int n = 0;
+        try {
+            inflater.setInput(stored, offset, length);
+            while (n < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(chunk, n, rawLength - n);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += count;
+            }
+        } catch (DataFormatException e) {
+            log.warn("正文解压失败: {}", e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return n == rawLength ? chunk : Arrays.copyOf(chunk, n);
+    }
+
+    /**
+     * 块数据的 CRC 是否与索引表一致
+     */
+    public static boolean checkChunk(ChunkTable table, int chunk, byte[] stored, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(stored, offset, table.getLength(chunk));
+        return (int) crc.getValue() == table.getCrc(chunk);
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int len) {
+        try {
+            if (in.readNBytes(buffer, 0, len) < len) {
+                log.error("正文长度与声明的长度不一致");
+                throw new BusinessException(ResponseCodeEnum.CODE_400);
+            }
+        } catch (IOException e) {
+            log.error("正文读取失败: {}", e.getMessage());
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+    }
+
+    /**
+     * 流式解压：按块输入压缩数据，解压结果按块回调
+     */
+    public static class StreamInflater {
+
+        private final Inflater inflater = new Inflater();
+
+        private final byte[] buffer;
+
+        // 数据损坏后不再解压
+        private boolean broken;
+
+        public StreamInflater(int bufferBytes) {
+            this.buffer = new byte[bufferBytes];
+        }
+
+        public void inflate(byte[] input, int offset, int length, ImgParser.DataChunkConsumer consumer) throws IOException {
+            if (broken || inflater.finished()) {
+                return;
+            }
+            inflater.setInput(input, offset, length);
+            try {
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buffer);
+                    if (n > 0) {
+                        consumer.accept(buffer, 0, n);
+                    } else if (inflater.needsInput() || inflater.needsDictionary()) {
+                        break;
+                    }
+                }
+            } catch (DataFormatException e) {
+                log.warn("正文解压失败: {}", e.getMessage());
+                broken = true;
+            }
+        }
+
+        /**
+         * 开始解压下一个独立压缩的块
+         */
+        public void reset() {
+            inflater.reset();
+            broken = false;
+        }
+
+        public void end() {
+            inflater.end();
+        }
+
+    }
+
+    /**
+     * 顺序读取分块数据区：按索引表切分输入，逐块解压后回调正文，忽略末尾的索引表
+     */
+    public static class ChunkedReader implements ImgParser.DataChunkConsumer {
+
+        private final ChunkTable table;
+
+        private final ImgParser.DataChunkConsumer consumer;
+
+        // 压缩时的解压器，不压缩时为 null
+        private final StreamInflater inflater;
+
+        // 已读取的数据区字节数
+        private long position;
+
+        private int chunk;
+
+        public ChunkedReader(ChunkTable table, CompressionEnum compression, int bufferBytes, ImgParser.DataChunkConsumer consumer) {
+            this.table = table;
+            this.consumer = consumer;
+            this.inflater = compression == CompressionEnum.DEFLATE ? new StreamInflater(bufferBytes) : null;
+        }
+
+        @Override
+        public void accept(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0 && chunk < table.getCount()) {
+                long chunkEnd = (long) table.getOffset(chunk) + table.getLength(chunk);
+                int n = (int) Math.min(length, chunkEnd - position);
+                if (inflater != null) {
+                    inflater.inflate(buffer, offset, n, consumer);
+                } else {
+                    consumer.accept(buffer, offset, n);
+                }
+                position += n;
+                offset += n;
+                length -= n;
+                if (position == chunkEnd) {
+                    chunk++;
+                    if (inflater != null) {
+                        inflater.reset();
+                    }
+                }
+            }
+        }
+
+        public void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+
+    }
+
+    /**
+     * 原样输出正文并在末尾追加索引表
+     */
+    private static class ChunkedInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private final ChunkTable table;
+
+        private final CRC32 crc = new CRC32();
+
+        // 已输出的正文字节数
+        private long position;
+
+        // 正文输出完后的索引表
+        private ByteArrayInputStream tableIn;
+
+        ChunkedInputStream(InputStream in, long length, int chunkSize) {
+            this.in = in;
+            this.table = new ChunkTable(chunkSize, length);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position < table.getRawLength()) {
+                int chunk = (int) (position / table.getChunkSize());
+                long chunkStart = (long) chunk * table.getChunkSize();
+                int n = in.read(b, off, (int) Math.min(len, chunkStart + table.getRawLength(chunk) - position));
+                if (n < 0) {
+                    log.error("正文长度与声明的长度不一致");
+                    throw new BusinessException(ResponseCodeEnum.CODE_400);
+                }
+                crc.update(b, off, n);
+                position += n;
+                if (position == chunkStart + table.getRawLength(chunk)) {
+                    table.set(chunk, (int) chunkStart, table.getRawLength(chunk), (int) crc.getValue());
+                    crc.reset();
+                }
+                return n;
+            }
+            if (tableIn == null) {
+                tableIn = new ByteArrayInputStream(table.toBytes());
+            }
+            return tableIn.read(b, off, len);
+        }
+
+    }
+
+    /**
+     * 逐块压缩正文并在末尾追加索引表
+     */
+    private static class CompressedInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private final ChunkTable table;
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+        private final CRC32 crc = new CRC32();
+
+        // 当前块的正文
+        private final byte[] raw;
+
+        // 当前块压缩后的数据，容纳一块的压缩上限
+        private final byte[] compressed;
+
+        private int compressedLength;
+
+        // 当前块已输出的字节数
+        private int compressedPosition;
+
+        // 下一个要压缩的块
+        private int chunk;
+
+        // 已输出的块数据字节数，即下一块在数据区中的偏移
+        private int storedLength;
+
+        // 全部块输出完后的索引表
+        private ByteArrayInputStream tableIn;
+
+        CompressedInputStream(InputStream in, long length, int chunkSize) {
+            this.in = in;
+            this.table = new ChunkTable(chunkSize, length);
+            int rawBytes = (int) Math.min(length, chunkSize);
+            this.raw = new byte[rawBytes];
+            this.compressed = new byte[deflateBound(rawBytes)];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (compressedPosition == compressedLength && chunk < table.getCount()) {
+                compressNext();
+            }
+            if (compressedPosition < compressedLength) {
+                int n = Math.min(len, compressedLength - compressedPosition);
+                System.arraycopy(compressed, compressedPosition, b, off, n);
+                compressedPosition += n;
+                return n;
+            }
+            if (tableIn == null) {
+                deflater.end();
+                tableIn = new ByteArrayInputStream(table.toBytes());
+            }
+            return tableIn.read(b, off, len);
+        }
+
+        private void compressNext() {
+            int len = table.getRawLength(chunk);
+            readFully(in, raw, len);
+            deflater.reset();
+            deflater.setInput(raw, 0, len);
+            deflater.finish();
+            compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    // 不会超过压缩上限，超出说明上限计算有误，不能继续写入
+                    throw new IllegalStateException("压缩后的块超出上限");
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            crc.reset();
+            crc.update(compressed, 0, compressedLength);
+            table.set(chunk, storedLength, compressedLength, (int) crc.getValue());
+            storedLength += compressedLength;
+            compressedPosition = 0;
+            chunk++;
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+        }
+
+    }
+
+}
@@ -0,0 +1,446 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * PNG 逐行读取器
+ * 按行顺序解压 IDAT 数据，只解码到所需像素所在的行为止，不需要的行既不转换颜色也不保存。
+ * 仅支持非隔行扫描、8位深度的 RGB、RGBA、索引色图片，其余情况由调用方回退到 ImageIO。
+ */
+public class PngRowReader implements Closeable {
+
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+
+    private static final int IHDR = 0x49484452;
+
+    private static final int PLTE = 0x504C5445;
+
+    private static final int TRNS = 0x74524E53;
+
+    private static final int ICCP = 0x69434350;
+
+    private static final int IDAT = 0x49444154;
+
+    private static final int IEND = 0x49454E44;
+
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private static final int COLOR_TYPE_PALETTE = 3;
+
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private int width;
+
+    private int height;
+
+    private int colorType;
+
+    private int bytesPerPixel;
+
+    private int[] palette;
+
+    // 分段索引，存在时可直接跳到目标行所在的段开始解码
+    private PngSegmentIndex segmentIndex;
+
+    // 第一个 IDAT 块（含长度字段）在文件中的偏移
+    private long firstIdatOffset;
+
+    private DataInputStream chunkIn;
+
+    private InflaterInputStream rowIn;
+
+    private Inflater inflater;
+
+    private byte[] prevRow;
+
+    private byte[] curRow;
+
+    // 当前 curRow 对应的行号，-1 表示尚未解码任何行
+    private int currentRow = -1;
+
+    private PngRowReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 打开 PNG 图片
+     * @return 图片不是 PNG 或格式不受支持时返回 null
+     */
+    public static PngRowReader open(String imagePath) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(imagePath), StandardOpenOption.READ);
+        PngRowReader reader = new PngRowReader(channel);
+        boolean supported = false;
+        try {
+            supported = reader.readMetadata();
+        } finally {
+            if (!supported) {
+                reader.close();
+            }
+        }
+        return supported ? reader : null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 分段索引，源文件没有索引或索引与块布局不一致时为 null
+     */
+    PngSegmentIndex getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    private boolean readMetadata() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        try {
+            if (in.readLong() != SIGNATURE) {
+                return false;
+            }
+        } catch (EOFException e) {
+            return false;
+        }
+
+        long offset = 8;
+        boolean hasTrns = false;
+        byte[] indexData = null;
+        while (true) {
+            int length = in.readInt();
+            int type = in.readInt();
+            if (type == IDAT) {
+                break;
+            }
+            if (type == IEND) {
+                return false;
+            }
+            switch (type) {
+                case IHDR -> {
+                    width = in.readInt();
+                    height = in.readInt();
+                    int bitDepth = in.readUnsignedByte();
+                    colorType = in.readUnsignedByte();
+                    in.readUnsignedByte();
+                    in.readUnsignedByte();
+                    int interlace = in.readUnsignedByte();
+                    if (bitDepth != 8 || interlace != 0) {
+                        return false;
+                    }
+                    in.skipNBytes(length - 13L);
+                }
+                case PLTE -> {
+                    palette = new int[256];
+                    Arrays.fill(palette, 0xFF000000);
+                    for (int i = 0; i < length / 3; i++) {
+                        palette[i] = 0xFF000000 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+                    }
+                    in.skipNBytes(length % 3);
+                }
+                case TRNS -> {
+                    hasTrns = true;
+                    if (colorType == COLOR_TYPE_PALETTE && palette != null) {
+                        for (int i = 0; i < length; i++) {
+                            int alpha = in.readUnsignedByte();
+                            if (i < palette.length) {
+                                palette[i] = (palette[i] & 0x00FFFFFF) | alpha << 24;
+                            }
+                        }
+                    } else {
+                        in.skipNBytes(length);
+                    }
+                }
+                case PngSegmentIndex.CHUNK_TYPE -> {
+                    indexData = new byte[length];
+                    in.readFully(indexData);
+                }
+                case ICCP -> {
+                    // 内嵌色彩配置时 ImageIO 会做颜色空间转换，交由 ImageIO 处理以保证像素值一致
+                    return false;
+                }
+                default -> in.skipNBytes(length);
+            }
+            // 跳过CRC
+            in.skipNBytes(4);
+            offset += 12L + length;
+        }
+
+        switch (colorType) {
+            case COLOR_TYPE_RGB -> {
+                if (hasTrns) {
+                    return false;
+                }
+                bytesPerPixel = 3;
+            }
+            case COLOR_TYPE_RGBA -> bytesPerPixel = 4;
+            case COLOR_TYPE_PALETTE -> {
+                if (palette == null) {
+                    return false;
+                }
+                bytesPerPixel = 1;
+            }
+            default -> {
+                return false;
+            }
+        }
+
+        firstIdatOffset = offset;
+        if (indexData != null && colorType == COLOR_TYPE_RGBA) {
+            segmentIndex = PngSegmentIndex.parse(indexData, height, offset);
+        }
+        prevRow = new byte[width * bytesPerPixel];
+        curRow = new byte[width * bytesPerPixel];
+        resetRows();
+        return true;
+    }
+
+    /**
+     * 回到第一个 IDAT 块重新开始解码
+     */
+    private void resetRows() throws IOException {
+        startAt(firstIdatOffset, new Inflater(), -1);
+    }
+
+    /**
+     * 直接跳到指定段开始解码，段首行不依赖上一行，解压器以裸 deflate 模式从段起点开始
+     * @return 文件中的块布局与索引不一致时返回 false
+     */
+    private boolean jumpToSegment(int segment) throws IOException {
+        long chunkOffset = segmentIndex.getChunkOffset(segment);
+        if (!PngSegmentIndex.checkChunk(channel, ByteBuffer.allocate(8), chunkOffset, segmentIndex.getCompressedLength(segment))) {
+            segmentIndex = null;
+            return false;
+        }
+        startAt(chunkOffset, new Inflater(true), segmentIndex.getStartRow(segment) - 1);
+        return true;
+    }
+
+    private void startAt(long chunkOffset, Inflater newInflater, int row) throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        channel.position(chunkOffset);
+        chunkIn = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        inflater = newInflater;
+        rowIn = new InflaterInputStream(new IdatInputStream(), inflater, BUFFER_SIZE);
+        Arrays.fill(curRow, (byte) 0);
+        currentRow = row;
+    }
+
+    /**
+     * 按线性下标（y * width + x）读取 ARGB 像素，只解码到最后一个所需像素所在的行
+     */
+    public void readPixels(int fromIndex, int[] target, int targetOffset, int count) throws IOException {
+        int index = fromIndex;
+        int end = fromIndex + count;
+        int offset = targetOffset;
+        while (index < end) {
+            int y = index / width;
+            int x = index % width;
+            int len = Math.min(width - x, end - index);
+            seekRow(y);
+            convertRow(x, target, offset, len);
+            index += len;
+            offset += len;
+        }
+    }
+
+    private void seekRow(int y) throws IOException {
+        if (y >= height) {
+            throw new EOFException("像素行超出图片范围: " + y);
+        }
+        if (segmentIndex != null) {
+            int segment = segmentIndex.segmentOf(y);
+            // 目标行在后面的段或需要回退时，直接跳到段起点，跳过中间所有段的解压
+            if ((y < currentRow || segmentIndex.getStartRow(segment) > currentRow + 1) && jumpToSegment(segment)) {
+                while (currentRow < y) {
+                    decodeNextRow();
+                }
+                return;
+            }
+        }
+        if (y < currentRow) {
+            resetRows();
+        }
+        while (currentRow < y) {
+            decodeNextRow();
+        }
+    }
+
+    private void decodeNextRow() throws IOException {
+        byte[] tmp = prevRow;
+        prevRow = curRow;
+        curRow = tmp;
+
+        int filter = rowIn.read();
+        if (filter < 0) {
+            throw new EOFException("图片数据不完整");
+        }
+        readFully(rowIn, curRow);
+        unfilter(filter, curRow, prevRow, bytesPerPixel);
+        currentRow++;
+    }
+
+    /**
+     * 还原行过滤
+     */
+    static void unfilter(int filter, byte[] row, byte[] prev, int bpp) throws IOException {
+        int len = row.length;
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = bpp; i < len; i++) {
+                    row[i] += row[i - bpp];
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < len; i++) {
+                    row[i] += prev[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < bpp; i++) {
+                    row[i] += (prev[i] & 0xFF) >> 1;
+                }
+                for (int i = bpp; i < len; i++) {
+                    row[i] += ((row[i - bpp] & 0xFF) + (prev[i] & 0xFF)) >> 1;
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < bpp; i++) {
+                    row[i] += prev[i];
+                }
+                for (int i = bpp; i < len; i++) {
+                    row[i] += paeth(row[i - bpp] & 0xFF, prev[i] & 0xFF, prev[i - bpp] & 0xFF);
+                }
+            }
+            default -> throw new IOException("未知的行过滤类型: " + filter);
+        }
+    }
+
+    static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private void convertRow(int x, int[] target, int offset, int len) {
+        byte[] row = curRow;
+        switch (colorType) {
+            case COLOR_TYPE_RGBA -> {
+                for (int i = 0, p = x * 4; i < len; i++, p += 4) {
+                    target[offset + i] = (row[p + 3] & 0xFF) << 24
+                            | (row[p] & 0xFF) << 16
+                            | (row[p + 1] & 0xFF) << 8
+                            | (row[p + 2] & 0xFF);
+                }
+            }
+            case COLOR_TYPE_RGB -> {
+                for (int i = 0, p = x * 3; i < len; i++, p += 3) {
+                    target[offset + i] = 0xFF000000
+                            | (row[p] & 0xFF) << 16
+                            | (row[p + 1] & 0xFF) << 8
+                            | (row[p + 2] & 0xFF);
+                }
+            }
+            default -> {
+                for (int i = 0; i < len; i++) {
+                    target[offset + i] = palette[row[x + i] & 0xFF];
+                }
+            }
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int n = 0;
+        while (n < buffer.length) {
+            int read = in.read(buffer, n, buffer.length - n);
+            if (read < 0) {
+                throw new EOFException("图片数据不完整");
+            }
+            n += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        channel.close();
+    }
+
+    /**
+     * 将连续的 IDAT 块拼接为一个数据流
+     */
+    private class IdatInputStream extends InputStream {
+
+        // 当前块剩余字节数，-1 表示已读到最后一个 IDAT 块之后
+        private int remaining;
+
+        private boolean started;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunkIfNeeded()) {
+                return -1;
+            }
+            int read = chunkIn.read(b, off, Math.min(len, remaining));
+            if (read < 0) {
+                throw new EOFException("图片数据不完整");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        private boolean nextChunkIfNeeded() throws IOException {
+            while (remaining == 0) {
+                if (started) {
+                    // 跳过上一个块的CRC
+                    chunkIn.skipNBytes(4);
+                }
+                started = true;
+                int length = chunkIn.readInt();
+                int type = chunkIn.readInt();
+                if (type != IDAT) {
+                    remaining = -1;
+                    return false;
+                }
+                remaining = length;
+            }
+            return remaining > 0;
+        }
+    }
+
+}
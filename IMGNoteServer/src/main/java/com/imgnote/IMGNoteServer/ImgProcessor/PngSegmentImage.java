@@ -0,0 +1,725 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.PngEncodeConfig;
+import com.imgnote.IMGNoteServer.enums.PngFilterEnum;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 按段读写的 PNG 图片
+ * 源文件带有 {@link PngSegmentIndex} 时，像素按段懒加载，保存时只重新编码被修改过的段，
+ * 其余段的 IDAT 块从源文件原样复制；否则整张图片解码后全量编码，并写入分段索引供下次使用。
+ * 输出固定为 8 位 RGBA、非隔行扫描。
+ * 指定 ForkJoinPool 时，段的解码与重新编码按段并行执行。
+ */
+public class PngSegmentImage implements Closeable {
+
+    private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+
+    private static final int IHDR = 0x49484452;
+
+    private static final int IEND = 0x49454E44;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int width;
+
+    private final int height;
+
+    private final int segmentRows;
+
+    private final int segmentCount;
+
+    private final PngEncodeConfig config;
+
+    // 段并行解码/编码使用的线程池，为 null 时顺序执行
+    private final ForkJoinPool pool;
+
+    // 带分段索引的源文件，无索引时为 null
+    private FileChannel sourceChannel;
+
+    private final PngSegmentIndex sourceIndex;
+
+    // 无分段索引时的完整解码结果
+    private final BufferedImage sourceImage;
+
+    // 已加载的段像素（ARGB）
+    private final int[][] segments;
+
+    private final boolean[] dirty;
+
+    // 提前编码完成的段，像素已释放，保存时直接写出
+    private final EncodedSegment[] sealed;
+
+    private PngSegmentImage(FileChannel sourceChannel, PngSegmentIndex sourceIndex, int width, int height,
+                            PngEncodeConfig config, ForkJoinPool pool) {
+        this.sourceChannel = sourceChannel;
+        this.sourceIndex = sourceIndex;
+        this.sourceImage = null;
+        this.width = width;
+        this.height = height;
+        this.config = config;
+        this.pool = pool;
+        this.segmentRows = sourceIndex.getSegmentRows();
+        this.segmentCount = sourceIndex.getSegmentCount();
+        this.segments = new int[segmentCount][];
+        this.dirty = new boolean[segmentCount];
+        this.sealed = new EncodedSegment[segmentCount];
+    }
+
+    private PngSegmentImage(BufferedImage sourceImage, PngEncodeConfig config, ForkJoinPool pool) {
+        this.sourceChannel = null;
+        this.sourceIndex = null;
+        this.sourceImage = sourceImage;
+        this.width = sourceImage.getWidth();
+        this.height = sourceImage.getHeight();
+        this.config = config;
+        this.pool = pool;
+        long rowBytes = (long) width * BYTES_PER_PIXEL + 1;
+        this.segmentRows = (int) Math.max(1, Math.min(height, config.getSegmentSizeKb() * 1024L / rowBytes));
+        this.segmentCount = PngSegmentIndex.getSegmentCount(height, segmentRows);
+        this.segments = new int[segmentCount][];
+        this.dirty = new boolean[segmentCount];
+        this.sealed = new EncodedSegment[segmentCount];
+        // 源文件没有可复用的段，全部需要编码
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * 打开图片，优先使用分段索引
+     */
+    public static PngSegmentImage open(String imagePath, PngEncodeConfig config) throws IOException {
+        return open(imagePath, config, null);
+    }
+
+    /**
+     * 打开图片，优先使用分段索引
+     * @param pool 段并行解码/编码使用的线程池，为 null 时顺序执行
+     */
+    public static PngSegmentImage open(String imagePath, PngEncodeConfig config, ForkJoinPool pool) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(imagePath), StandardOpenOption.READ);
+        PngSegmentImage segmentImage = null;
+        try {
+            segmentImage = openIndexed(channel, config, pool);
+        } finally {
+            if (segmentImage == null) {
+                channel.close();
+            }
+        }
+        if (segmentImage != null) {
+            return segmentImage;
+        }
+
+        BufferedImage image = ImageIO.read(new File(imagePath));
+        if (image == null) {
+            throw new IOException("不支持的图片格式");
+        }
+        return new PngSegmentImage(image, config, pool);
+    }
+
+    private static PngSegmentImage openIndexed(FileChannel channel, PngEncodeConfig config, ForkJoinPool pool) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        if (!readFully(channel, header, 0) || header.getLong() != SIGNATURE) {
+            return null;
+        }
+        long offset = 8;
+        int width = 0;
+        int height = 0;
+        byte[] indexData = null;
+        while (true) {
+            if (!readFully(channel, header.clear(), offset)) {
+                return null;
+            }
+            int length = header.getInt();
+            int type = header.getInt();
+            if (type == PngSegmentIndex.IDAT || type == IEND || length < 0) {
+                break;
+            }
+            if (type == IHDR) {
+                ByteBuffer ihdr = ByteBuffer.allocate(13);
+                if (length != 13 || !readFully(channel, ihdr, offset + 8)) {
+                    return null;
+                }
+                width = ihdr.getInt();
+                height = ihdr.getInt();
+                int bitDepth = ihdr.get();
+                int colorType = ihdr.get();
+                ihdr.position(12);
+                int interlace = ihdr.get();
+                if (bitDepth != 8 || colorType != 6 || interlace != 0) {
+                    return null;
+                }
+            } else if (type == PngSegmentIndex.CHUNK_TYPE) {
+                ByteBuffer data = ByteBuffer.allocate(length);
+                if (!readFully(channel, data, offset + 8)) {
+                    return null;
+                }
+                indexData = data.array();
+            }
+            offset += 12L + length;
+        }
+        if (indexData == null || width <= 0 || height <= 0) {
+            return null;
+        }
+        PngSegmentIndex index = PngSegmentIndex.parse(indexData, height, offset);
+        if (index == null || !index.validate(channel)) {
+            return null;
+        }
+        return new PngSegmentImage(channel, index, width, height, config, pool);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 按线性下标（y * width + x）读取 ARGB 像素，只加载涉及的段
+     */
+    public void readPixels(int fromIndex, int[] target, int targetOffset, int count) throws IOException {
+        int index = fromIndex;
+        int end = fromIndex + count;
+        int offset = targetOffset;
+        while (index < end) {
+            int y = index / width;
+            int segment = y / segmentRows;
+            int segmentStart = segment * segmentRows * width;
+            int segmentEnd = Math.min(segmentStart + segmentRows * width, width * height);
+            int len = Math.min(segmentEnd, end) - index;
+            System.arraycopy(loadSegment(segment), index - segmentStart, target, offset, len);
+            index += len;
+            offset += len;
+        }
+    }
+
+    /**
+     * 按线性下标（y * width + x）写入 ARGB 像素，并标记涉及的段需要重新编码
+     */
+    public void writePixels(int fromIndex, int[] source, int sourceOffset, int count) throws IOException {
+        int index = fromIndex;
+        int end = fromIndex + count;
+        int offset = sourceOffset;
+        while (index < end) {
+            int y = index / width;
+            int segment = y / segmentRows;
+            int segmentStart = segment * segmentRows * width;
+            int segmentEnd = Math.min(segmentStart + segmentRows * width, width * height);
+            int len = Math.min(segmentEnd, end) - index;
+            System.arraycopy(source, offset, loadSegment(segment), index - segmentStart, len);
+            dirty[segment] = true;
+            index += len;
+            offset += len;
+        }
+    }
+
+    /**
+     * 并行加载指定像素范围涉及的段，之后的 readPixels 不再触发解码
+     */
+    public void preload(int fromIndex, int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        int firstSegment = fromIndex / width / segmentRows;
+        int lastSegment = (fromIndex + count - 1) / width / segmentRows;
+        StripeTask.invoke(pool, lastSegment - firstSegment + 1, i -> loadSegment(firstSegment + i));
+    }
+
+    /**
+     * 将完全位于 [fromIndex, toIndex) 内的脏段提前编码并释放像素，之后不能再读写这些段
+     * 用于流式写入：已写完的段不必等到保存时才编码，内存中只保留压缩后的数据；范围内未修改的段同样释放像素。
+     */
+    public void seal(int fromIndex, int toIndex) throws IOException {
+        int segmentPixels = segmentRows * width;
+        int firstSegment = (fromIndex + segmentPixels - 1) / segmentPixels;
+        int lastSegment = toIndex == width * height ? segmentCount : toIndex / segmentPixels;
+        // 流式写入时按顺序封存，跳过之前已封存的段
+        while (firstSegment < lastSegment && sealed[firstSegment] != null) {
+            firstSegment++;
+        }
+        if (firstSegment >= lastSegment) {
+            return;
+        }
+        EncodedSegment[] encoded = encodeDirtySegments(firstSegment, lastSegment);
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoded[i] != null) {
+                sealed[firstSegment + i] = encoded[i];
+                segments[firstSegment + i] = null;
+            } else if (sourceIndex != null && !dirty[firstSegment + i]) {
+                // 未修改的段保存时直接复制源文件，像素可以释放，需要时重新解码
+                segments[firstSegment + i] = null;
+            }
+        }
+    }
+
+    private int getRowCount(int segment) {
+        return Math.min(segmentRows, height - segment * segmentRows);
+    }
+
+    private int[] loadSegment(int segment) throws IOException {
+        int[] pixels = segments[segment];
+        if (pixels != null) {
+            return pixels;
+        }
+        if (sealed[segment] != null) {
+            throw new IllegalStateException("段已编码, 不能再读写: " + segment);
+        }
+        int rows = getRowCount(segment);
+        pixels = new int[rows * width];
+        if (sourceImage != null) {
+            ImgTools.readPixels(sourceImage, segment * segmentRows * width, pixels, 0, pixels.length);
+        } else {
+            decodeSegment(segment, pixels, rows);
+        }
+        segments[segment] = pixels;
+        return pixels;
+    }
+
+    /**
+     * 单独解码源文件中的一个段
+     */
+    private void decodeSegment(int segment, int[] pixels, int rows) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(sourceIndex.getCompressedLength(segment));
+        if (!readFully(sourceChannel, compressed, sourceIndex.getChunkOffset(segment) + 8)) {
+            throw new EOFException("图片数据不完整");
+        }
+
+        int rowBytes = width * BYTES_PER_PIXEL;
+        byte[] prev = new byte[rowBytes];
+        byte[] cur = new byte[rowBytes];
+        byte[] filterByte = new byte[1];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            for (int r = 0; r < rows; r++) {
+                inflateFully(inflater, filterByte);
+                inflateFully(inflater, cur);
+                PngRowReader.unfilter(filterByte[0] & 0xFF, cur, prev, BYTES_PER_PIXEL);
+                for (int x = 0, p = 0, i = r * width; x < width; x++, p += 4, i++) {
+                    pixels[i] = (cur[p + 3] & 0xFF) << 24
+                            | (cur[p] & 0xFF) << 16
+                            | (cur[p + 1] & 0xFF) << 8
+                            | (cur[p + 2] & 0xFF);
+                }
+                byte[] tmp = prev;
+                prev = cur;
+                cur = tmp;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("图片数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void inflateFully(Inflater inflater, byte[] buffer) throws DataFormatException, EOFException {
+        int n = 0;
+        while (n < buffer.length) {
+            int read = inflater.inflate(buffer, n, buffer.length - n);
+            if (read == 0 && (inflater.needsInput() || inflater.finished())) {
+                throw new EOFException("图片数据不完整");
+            }
+            n += read;
+        }
+    }
+
+    /**
+     * 转换为 TYPE_INT_ARGB 图片，用于非 PNG 格式的保存
+     */
+    public BufferedImage toBufferedImage() throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        readPixels(0, data, 0, data.length);
+        return image;
+    }
+
+    /**
+     * 保存为 PNG，不主动刷盘
+     * @see #save(String, AtomicFileSaver)
+     */
+    public void save(String outputPath) throws IOException {
+        save(outputPath, AtomicFileSaver.NO_SYNC);
+    }
+
+    /**
+     * 保存为 PNG
+     * 先写入同目录下的临时文件再替换目标文件，保存后源文件被关闭，当前对象不可再使用。
+     */
+    public void save(String outputPath, AtomicFileSaver saver) throws IOException {
+        saver.save(outputPath, out -> {
+            writePng(out);
+            // 替换前关闭源文件，Windows 下打开中的文件不能被替换
+            close();
+        });
+    }
+
+    private void writePng(FileChannel out) throws IOException {
+        ChunkWriter writer = new ChunkWriter(out);
+        writer.writeRaw(ByteBuffer.allocate(8).putLong(SIGNATURE).flip());
+
+        ByteBuffer ihdr = ByteBuffer.allocate(13);
+        ihdr.putInt(width).putInt(height).put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0);
+        writer.writeChunk(IHDR, ihdr.array(), 0, 13);
+
+        // 索引块先占位，所有段写完后回填
+        long indexOffset = out.position();
+        int indexLength = PngSegmentIndex.getDataLength(segmentCount);
+        writer.writeChunk(PngSegmentIndex.CHUNK_TYPE, new byte[indexLength], 0, indexLength);
+
+        long firstIdatOffset = out.position();
+        writer.writeChunk(PngSegmentIndex.IDAT, zlibHeader(config.getCompressionLevel()), 0, 2);
+
+        int[] compressedLengths = new int[segmentCount];
+        int[] adlers = new int[segmentCount];
+        long adler = 1;
+        // 按窗口并行编码脏段，再按顺序写出，同时只持有一个窗口的压缩结果
+        int window = StripeTask.isParallel(pool) ? pool.getParallelism() * 2 : 1;
+        for (int windowStart = 0; windowStart < segmentCount; windowStart += window) {
+            int windowEnd = Math.min(segmentCount, windowStart + window);
+            EncodedSegment[] encoded = encodeDirtySegments(windowStart, windowEnd);
+            for (int segment = windowStart; segment < windowEnd; segment++) {
+                long rawLength = (long) getRowCount(segment) * (width * BYTES_PER_PIXEL + 1);
+                if (dirty[segment]) {
+                    EncodedSegment encodedSegment = encoded[segment - windowStart];
+                    compressedLengths[segment] = encodedSegment.data.size();
+                    adlers[segment] = encodedSegment.adler;
+                    writer.writeChunk(PngSegmentIndex.IDAT, encodedSegment.data);
+                } else {
+                    compressedLengths[segment] = sourceIndex.getCompressedLength(segment);
+                    adlers[segment] = sourceIndex.getAdler(segment);
+                    writer.copyChunk(sourceChannel, sourceIndex.getChunkOffset(segment), 12L + compressedLengths[segment]);
+                }
+                adler = adler32Combine(adler, adlers[segment] & 0xFFFFFFFFL, rawLength);
+            }
+        }
+
+        byte[] adlerBytes = ByteBuffer.allocate(4).putInt((int) adler).array();
+        writer.writeChunk(PngSegmentIndex.IDAT, adlerBytes, 0, 4);
+        writer.writeChunk(IEND, new byte[0], 0, 0);
+
+        byte[] indexData = new PngSegmentIndex(height, segmentRows, compressedLengths, adlers, firstIdatOffset).toBytes();
+        writer.rewriteChunk(indexOffset, PngSegmentIndex.CHUNK_TYPE, indexData);
+    }
+
+    /**
+     * 编码 [from, to) 范围内的脏段，各段使用独立的编码器
+     */
+    private EncodedSegment[] encodeDirtySegments(int from, int to) throws IOException {
+        EncodedSegment[] encoded = new EncodedSegment[to - from];
+        StripeTask.invoke(pool, to - from, i -> {
+            int segment = from + i;
+            if (!dirty[segment]) {
+                return;
+            }
+            if (sealed[segment] != null) {
+                encoded[i] = sealed[segment];
+                sealed[segment] = null;
+                return;
+            }
+            SegmentEncoder encoder = new SegmentEncoder();
+            try {
+                ByteArrayOutputStream data = encoder.encode(loadSegment(segment), getRowCount(segment), segment == segmentCount - 1);
+                encoded[i] = new EncodedSegment(data, encoder.getAdler());
+            } finally {
+                encoder.end();
+            }
+            if (sourceImage != null) {
+                // 无索引来源时编码完即释放，避免同时持有两份像素
+                segments[segment] = null;
+            }
+        });
+        return encoded;
+    }
+
+    /**
+     * 编码后的段
+     */
+    private static class EncodedSegment {
+
+        private final ByteArrayOutputStream data;
+
+        private final int adler;
+
+        EncodedSegment(ByteArrayOutputStream data, int adler) {
+            this.data = data;
+            this.adler = adler;
+        }
+    }
+
+    private static byte[] zlibHeader(int level) {
+        int cmf = 0x78;
+        int flevel;
+        if (level < 0 || level == 6) {
+            flevel = 2;
+        } else if (level <= 1) {
+            flevel = 0;
+        } else if (level <= 5) {
+            flevel = 1;
+        } else {
+            flevel = 3;
+        }
+        int flg = flevel << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        return new byte[]{(byte) cmf, (byte) flg};
+    }
+
+    /**
+     * 合并两段数据的 Adler-32，等价于 zlib 的 adler32_combine
+     */
+    static long adler32Combine(long adler1, long adler2, long len2) {
+        final long base = 65521;
+        long rem = len2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + base - rem;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= (base << 1)) {
+            sum2 -= (base << 1);
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sourceChannel != null) {
+            sourceChannel.close();
+            sourceChannel = null;
+        }
+    }
+
+    /**
+     * 段编码器：行过滤 + 独立压缩
+     */
+    private class SegmentEncoder {
+
+        private final Deflater deflater = new Deflater(config.getCompressionLevel(), true);
+
+        private final Adler32 adler32 = new Adler32();
+
+        private final int rowBytes = width * BYTES_PER_PIXEL;
+
+        private byte[] prev = new byte[rowBytes];
+
+        private byte[] cur = new byte[rowBytes];
+
+        // 过滤后的行，首字节为过滤类型；自适应模式下每种过滤各一份
+        private final byte[][] filtered = new byte[5][rowBytes + 1];
+
+        private final byte[] buffer = new byte[64 * 1024];
+
+        ByteArrayOutputStream encode(int[] pixels, int rows, boolean last) {
+            deflater.reset();
+            adler32.reset();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(1024, rows * rowBytes / 4));
+            for (int r = 0; r < rows; r++) {
+                for (int x = 0, p = 0, i = r * width; x < width; x++, p += 4, i++) {
+                    int pixel = pixels[i];
+                    cur[p] = (byte) (pixel >> 16);
+                    cur[p + 1] = (byte) (pixel >> 8);
+                    cur[p + 2] = (byte) pixel;
+                    cur[p + 3] = (byte) (pixel >>> 24);
+                }
+                byte[] row = filterRow(r == 0);
+                adler32.update(row);
+                deflater.setInput(row);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+                byte[] tmp = prev;
+                prev = cur;
+                cur = tmp;
+            }
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+            } else {
+                // FULL_FLUSH 使段结束于字节边界且不引用之前的数据，后续段可独立解压
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH);
+                    out.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return out;
+        }
+
+        int getAdler() {
+            return (int) adler32.getValue();
+        }
+
+        /**
+         * 过滤当前行，段首行只允许不依赖上一行的 None/Sub
+         */
+        private byte[] filterRow(boolean firstRow) {
+            PngFilterEnum filter = config.getFilter();
+            if (filter != PngFilterEnum.ADAPTIVE) {
+                int type = filter.getCode();
+                if (firstRow && type > 1) {
+                    type = 1;
+                }
+                applyFilter(type);
+                return filtered[type];
+            }
+            int maxType = firstRow ? 1 : 4;
+            int best = 0;
+            long bestSum = Long.MAX_VALUE;
+            for (int type = 0; type <= maxType; type++) {
+                applyFilter(type);
+                long sum = 0;
+                byte[] row = filtered[type];
+                for (int i = 1; i < row.length; i++) {
+                    sum += Math.abs(row[i]);
+                }
+                if (sum < bestSum) {
+                    bestSum = sum;
+                    best = type;
+                }
+            }
+            return filtered[best];
+        }
+
+        private void applyFilter(int type) {
+            byte[] row = filtered[type];
+            row[0] = (byte) type;
+            int bpp = BYTES_PER_PIXEL;
+            switch (type) {
+                case 0 -> System.arraycopy(cur, 0, row, 1, rowBytes);
+                case 1 -> {
+                    System.arraycopy(cur, 0, row, 1, bpp);
+                    for (int i = bpp; i < rowBytes; i++) {
+                        row[i + 1] = (byte) (cur[i] - cur[i - bpp]);
+                    }
+                }
+                case 2 -> {
+                    for (int i = 0; i < rowBytes; i++) {
+                        row[i + 1] = (byte) (cur[i] - prev[i]);
+                    }
+                }
+                case 3 -> {
+                    for (int i = 0; i < bpp; i++) {
+                        row[i + 1] = (byte) (cur[i] - ((prev[i] & 0xFF) >> 1));
+                    }
+                    for (int i = bpp; i < rowBytes; i++) {
+                        row[i + 1] = (byte) (cur[i] - (((cur[i - bpp] & 0xFF) + (prev[i] & 0xFF)) >> 1));
+                    }
+                }
+                default -> {
+                    for (int i = 0; i < bpp; i++) {
+                        row[i + 1] = (byte) (cur[i] - prev[i]);
+                    }
+                    for (int i = bpp; i < rowBytes; i++) {
+                        row[i + 1] = (byte) (cur[i] - PngRowReader.paeth(cur[i - bpp] & 0xFF, prev[i] & 0xFF, prev[i - bpp] & 0xFF));
+                    }
+                }
+            }
+        }
+
+        void end() {
+            deflater.end();
+        }
+    }
+
+    /**
+     * PNG 块写入
+     */
+    private static class ChunkWriter {
+
+        private final FileChannel out;
+
+        private final CRC32 crc = new CRC32();
+
+        private final ByteBuffer header = ByteBuffer.allocate(8);
+
+        private final ByteBuffer trailer = ByteBuffer.allocate(4);
+
+        ChunkWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        void writeRaw(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+
+        void writeChunk(int type, byte[] data, int offset, int length) throws IOException {
+            writeRaw(header.clear().putInt(length).putInt(type).flip());
+            writeRaw(ByteBuffer.wrap(data, offset, length));
+            crc.reset();
+            crc.update(header.array(), 4, 4);
+            crc.update(data, offset, length);
+            writeRaw(trailer.clear().putInt((int) crc.getValue()).flip());
+        }
+
+        void writeChunk(int type, ByteArrayOutputStream data) throws IOException {
+            byte[] bytes = data.toByteArray();
+            writeChunk(type, bytes, 0, bytes.length);
+        }
+
+        void rewriteChunk(long offset, int type, byte[] data) throws IOException {
+            long position = out.position();
+            out.position(offset);
+            writeChunk(type, data, 0, data.length);
+            out.position(position);
+        }
+
+        /**
+         * 从源文件原样复制整个块（含长度、类型与CRC）
+         */
+        void copyChunk(FileChannel source, long offset, long length) throws IOException {
+            long copied = 0;
+            while (copied < length) {
+                long n = source.transferTo(offset + copied, length - copied, out);
+                if (n <= 0) {
+                    throw new EOFException("图片数据不完整");
+                }
+                copied += n;
+            }
+        }
+    }
+
+}
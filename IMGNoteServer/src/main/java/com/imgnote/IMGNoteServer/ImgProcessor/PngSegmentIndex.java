@@ -0,0 +1,155 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PNG 分段索引
+ * 由 {@link PngSegmentImage} 写入的私有辅助块 "imIX"，位于 IHDR 之后、第一个 IDAT 之前。
+ * 图片数据按固定行数分段，每段是一个独立的 IDAT 块：段首行只使用 None/Sub 过滤，
+ * 每段单独压缩并以 FULL_FLUSH 结束，因此任一段都可以单独解码，未修改的段可以原样复制。
+ * IDAT 布局：zlib 头（2字节） | 段 0 | 段 1 | ... | 段 n-1 | Adler-32（4字节）
+ */
+public class PngSegmentIndex {
+
+    // "imIX"：辅助块、私有、不可安全复制（依赖 IDAT 内容）
+    public static final int CHUNK_TYPE = 0x696D4958;
+
+    public static final int IDAT = 0x49444154;
+
+    private static final int VERSION = 1;
+
+    private final int height;
+
+    private final int segmentRows;
+
+    private final int[] compressedLengths;
+
+    private final int[] adlers;
+
+    private final long[] chunkOffsets;
+
+    public PngSegmentIndex(int height, int segmentRows, int[] compressedLengths, int[] adlers, long firstIdatOffset) {
+        this.height = height;
+        this.segmentRows = segmentRows;
+        this.compressedLengths = compressedLengths;
+        this.adlers = adlers;
+        this.chunkOffsets = new long[compressedLengths.length];
+        // 跳过存放 zlib 头的 IDAT 块
+        long offset = firstIdatOffset + 12 + 2;
+        for (int i = 0; i < compressedLengths.length; i++) {
+            chunkOffsets[i] = offset;
+            offset += 12L + compressedLengths[i];
+        }
+    }
+
+    public static int getSegmentCount(int height, int segmentRows) {
+        return (height + segmentRows - 1) / segmentRows;
+    }
+
+    public static int getDataLength(int segmentCount) {
+        return 1 + 4 + 4 + segmentCount * 8;
+    }
+
+    /**
+     * 解析索引块
+     * @param firstIdatOffset 第一个 IDAT 块在文件中的偏移
+     * @return 索引与图片尺寸不符时返回 null
+     */
+    public static PngSegmentIndex parse(byte[] data, int height, long firstIdatOffset) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < 9 || buffer.get() != VERSION) {
+            return null;
+        }
+        int segmentRows = buffer.getInt();
+        int segmentCount = buffer.getInt();
+        if (segmentRows <= 0 || segmentCount != getSegmentCount(height, segmentRows)
+                || data.length != getDataLength(segmentCount)) {
+            return null;
+        }
+        int[] compressedLengths = new int[segmentCount];
+        int[] adlers = new int[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            compressedLengths[i] = buffer.getInt();
+            adlers[i] = buffer.getInt();
+        }
+        return new PngSegmentIndex(height, segmentRows, compressedLengths, adlers, firstIdatOffset);
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(getDataLength(compressedLengths.length));
+        buffer.put((byte) VERSION);
+        buffer.putInt(segmentRows);
+        buffer.putInt(compressedLengths.length);
+        for (int i = 0; i < compressedLengths.length; i++) {
+            buffer.putInt(compressedLengths[i]);
+            buffer.putInt(adlers[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 校验文件中的 IDAT 块布局与索引一致，防止图片被其他工具修改后索引失效
+     */
+    public boolean validate(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        for (int i = 0; i < chunkOffsets.length; i++) {
+            if (!checkChunk(channel, header, chunkOffsets[i], compressedLengths[i])) {
+                return false;
+            }
+        }
+        long adlerOffset = chunkOffsets[chunkOffsets.length - 1] + 12L + compressedLengths[compressedLengths.length - 1];
+        return checkChunk(channel, header, chunkOffsets[0] - 14, 2) && checkChunk(channel, header, adlerOffset, 4);
+    }
+
+    /**
+     * 校验指定偏移处是否为给定长度的 IDAT 块
+     */
+    public static boolean checkChunk(FileChannel channel, ByteBuffer header, long offset, int length) throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            if (channel.read(header, offset + header.position()) < 0) {
+                return false;
+            }
+        }
+        header.flip();
+        return header.getInt() == length && header.getInt() == IDAT;
+    }
+
+    public int getSegmentCount() {
+        return compressedLengths.length;
+    }
+
+    public int getSegmentRows() {
+        return segmentRows;
+    }
+
+    public int segmentOf(int row) {
+        return row / segmentRows;
+    }
+
+    public int getStartRow(int segment) {
+        return segment * segmentRows;
+    }
+
+    public int getRowCount(int segment) {
+        return Math.min(segmentRows, height - segment * segmentRows);
+    }
+
+    public int getCompressedLength(int segment) {
+        return compressedLengths[segment];
+    }
+
+    public int getAdler(int segment) {
+        return adlers[segment];
+    }
+
+    /**
+     * 段所在 IDAT 块（含长度字段）在文件中的偏移
+     */
+    public long getChunkOffset(int segment) {
+        return chunkOffsets[segment];
+    }
+
+}
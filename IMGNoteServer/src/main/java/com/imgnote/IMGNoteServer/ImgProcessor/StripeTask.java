@@ -0,0 +1,87 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 条带并行任务
+ * 将 [from, to) 范围内的条带二分拆分到 ForkJoinPool 上执行，各条带之间没有数据依赖，
+ * 只写入各自负责的输出区间。
+ */
+public class StripeTask extends RecursiveAction {
+
+    /**
+     * 单个条带的处理逻辑
+     */
+    @FunctionalInterface
+    public interface StripeAction {
+
+        void run(int stripe) throws IOException;
+
+    }
+
+    private final StripeAction action;
+
+    private final int from;
+
+    private final int to;
+
+    private StripeTask(StripeAction action, int from, int to) {
+        this.action = action;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * 线程池是否能带来并行收益，单线程池按顺序执行处理
+     */
+    public static boolean isParallel(ForkJoinPool pool) {
+        return pool != null && pool.getParallelism() > 1;
+    }
+
+    /**
+     * 并行执行全部条带，不具备并行条件或只有一个条带时在当前线程顺序执行
+     */
+    public static void invoke(ForkJoinPool pool, int stripeCount, StripeAction action) throws IOException {
+        if (!isParallel(pool) || stripeCount <= 1) {
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                action.run(stripe);
+            }
+            return;
+        }
+        try {
+            pool.invoke(new StripeTask(action, 0, stripeCount));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 按目标条带数计算每个条带的长度，不小于 minStripeLen
+     */
+    public static int stripeLength(ForkJoinPool pool, int totalLen, int minStripeLen) {
+        if (!isParallel(pool)) {
+            return Math.max(totalLen, 1);
+        }
+        // 条带数取并行度的4倍，便于负载均衡
+        int target = (int) Math.ceil((double) totalLen / (pool.getParallelism() * 4L));
+        return Math.max(Math.max(target, minStripeLen), 1);
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            try {
+                action.run(from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new StripeTask(action, from, mid), new StripeTask(action, mid, to));
+    }
+
+}
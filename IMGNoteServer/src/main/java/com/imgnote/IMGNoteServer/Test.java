@@ -5,10 +5,13 @@ import com.imgnote.IMGNoteServer.ImgProcessor.ImgParser;
 import com.imgnote.IMGNoteServer.bean.*;
 import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
 import com.imgnote.IMGNoteServer.enums.EncodingEnum;
-import com.imgnote.IMGNoteServer.converter.HeaderBuilder;
+import com.imgnote.IMGNoteServer.converter.HeaderCodec;
 import lombok.extern.slf4j.Slf4j;
 import com.imgnote.IMGNoteServer.utils.StringTools;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 @Slf4j
 public class Test {
 
@@ -21,15 +24,14 @@ public class Test {
         String text = "hello world";
         String verifyText = "verifyCode";
 
-        String md5Bits = StringTools.getMD5OfString(text);
-        String verifyCode = StringTools.getMD5OfString(verifyText);
-        String dataBits = StringTools.stringToBytes(text);
+        String md5Hex = StringTools.getMD5HexOfString(text);
+        String verifyCode = StringTools.getMD5HexOfString(verifyText);
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
 
-        log.info("dataBits: {}", dataBits);
-        log.info("dataBits length: {}", dataBits.length());
+        log.info("data length: {}", data.length);
 
         ImgGen imgGen = new ImgGen(originPath, outputPath, format);
-        imgGen.genStartAndEnd(dataBits);
+        imgGen.genStartAndEnd(data);
 
         Header param = new Header();
         param.setRecognitionShort(Constants.RECOGNITION);
@@ -38,26 +40,22 @@ public class Test {
         param.setStartPixel(imgGen.getStartPixel());
         param.setEndPixel(imgGen.getEndPixel());
         param.setTime(System.currentTimeMillis());
-        param.setDataMd5(md5Bits);
+        param.setDataMd5(md5Hex);
         param.setVerifyCode(verifyCode);
 
-        HeaderBits headerBits = new HeaderBits();
-        HeaderBuilder builder = new HeaderBuilder(headerBits);
-        builder.build(param);
-
-        log.info("Header bits: {}", headerBits);
-        log.info("Header bits length: {}", headerBits.toString().length());
+        byte[] headerBytes = HeaderCodec.encode(param);
+        log.info("Header bytes length: {}", headerBytes.length);
 
 //        Header res = new Header();
 //        HeaderParser parser = new HeaderParser(res, headerBits.toString());
 //        parser.parse();
 //        log.info("Header: {}", res);
 //        log.info("Header recognition == Origin: {}", res.getRecognition().equals(param.getRecognition()));
-//        log.info("Header md5 == Origin: {}", res.getMd5().equals(md5Bits));
+//        log.info("Header md5 == Origin: {}", res.getMd5().equals(md5Hex));
 //        log.info("Header verifyCode == Origin: {}", res.getVerifyCode().equals(verifyCode));
 //        log.info("Header recognition:  {}", StringTools.bytesToString(res.getRecognition()));
 
-        imgGen.gen(headerBits, param.getStartPixel());
+        imgGen.gen(param);
 
         Header resultHeader = new Header();
         ImgParser imgParser = new ImgParser(outputPath, resultHeader);
@@ -66,11 +64,10 @@ public class Test {
         log.info("Result header recognition == Constants: {}", resultHeader.getRecognitionShort() == Constants.RECOGNITION);
         log.info("Result header == Origin: {}", resultHeader.equals(param));
 
-        String resultDataBits = imgParser.getDataBits();
-        log.info("Result data bits: {}", resultDataBits);
-        log.info("Result data bits length: {}", resultDataBits.length());
-        log.info("Result data bits == Origin: {}", resultDataBits.equals(dataBits));
-        String resultText = StringTools.bytesToString(resultDataBits);
+        byte[] resultData = imgParser.getData();
+        log.info("Result data length: {}", resultData.length);
+        log.info("Result data == Origin: {}", Arrays.equals(resultData, data));
+        String resultText = new String(resultData, StandardCharsets.UTF_8);
         log.info("Result text: {}", resultText);
         log.info("Result text == Origin: {}", resultText.equals(text));
     }
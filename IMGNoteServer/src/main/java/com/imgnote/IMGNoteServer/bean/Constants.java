@@ -2,7 +2,14 @@ package com.imgnote.IMGNoteServer.bean;
 
 public class Constants {
 
-    public static final short RECOGNITION = 0x5354;
+    // 二进制 Header 的标识（"IN"），其后为版本号
+    public static final short RECOGNITION = 0x494E;
+
+    // 二进制 Header 的版本号，第 1 版为二进制串 Header
+    public static final int HEADER_VERSION = 2;
+
+    // 第一版标识，二进制串 Header，正文不压缩
+    public static final short RECOGNITION_V1 = 0x5354;
 
     public static final int RECOGNITION_LENGTH = 16;
 
@@ -30,7 +37,13 @@ public class Constants {
 
     public static final int VERIFY_CODE_LENGTH = 128;
 
-    public static final int HEADER_LENGTH = RECOGNITION_LENGTH + ENCRYPTION_TYPE_LENGTH + ENCODING_LENGTH + START_ROW_LENGTH + START_COL_LENGTH + END_ROW_LENGTH + END_COL_LENGTH + TIMESTAMP_LENGTH + MD5_LENGTH + VERIFY_CODE_LENGTH;
+    public static final int HEADER_LENGTH_V1 = RECOGNITION_LENGTH + ENCRYPTION_TYPE_LENGTH + ENCODING_LENGTH + START_ROW_LENGTH + START_COL_LENGTH + END_ROW_LENGTH + END_COL_LENGTH + TIMESTAMP_LENGTH + MD5_LENGTH + VERIFY_CODE_LENGTH;
+
+    // 二进制 Header 的字节数
+    public static final int HEADER_BYTES = 68;
+
+    // Header 占用的位数，按当前版本预留
+    public static final int HEADER_LENGTH = HEADER_BYTES * 8;
 
     public static final String FORMAT = "png";
 
@@ -1,5 +1,7 @@
 package com.imgnote.IMGNoteServer.bean;
 
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
 import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
 import com.imgnote.IMGNoteServer.enums.EncodingEnum;
 import lombok.Data;
@@ -9,6 +11,9 @@ public class Header {
 
     private short recognition;
 
+    // Header 版本，二进制串 Header 为 1
+    private Integer version;
+
     private EncodeTypeEnum encryptionType;
 
     private EncodingEnum encoding;
@@ -23,6 +28,16 @@ public class Header {
 
     private String verifyCode;
 
+    private CompressionEnum compression;
+
+    private DataLayoutEnum layout;
+
+    // 数据区每个通道承载的位数 1-4，Header 本身固定为 1
+    private Integer bitsPerChannel;
+
+    // 数据区末尾像素中多出的字节数，数据区长度需扣除
+    private Integer paddingBytes;
+
     public String getRecognition() {
         int unsignedShort = recognition & 0xFFFF;
         return String.format("%16s", Integer.toBinaryString(unsignedShort)).replace(' ', '0');
@@ -9,15 +9,17 @@ public class Img {
 
     private int height;
 
+    // 一定能写入的正文字节数，已扣除块索引表与压缩的最大开销
     private long maxContentLen;
 
-    private int[] pixels;
+    // 数据区可保存的字节数
+    private long maxStoredLen;
 
-    public Img(int width, int height, long maxContentLen, int[] pixels) {
+    public Img(int width, int height, long maxContentLen, long maxStoredLen) {
         this.width = width;
         this.height = height;
         this.maxContentLen = maxContentLen;
-        this.pixels = pixels;
+        this.maxStoredLen = maxStoredLen;
     }
 
 }
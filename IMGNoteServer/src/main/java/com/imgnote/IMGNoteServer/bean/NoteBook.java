@@ -1,8 +1,12 @@
 package com.imgnote.IMGNoteServer.bean;
 
+import com.imgnote.IMGNoteServer.ImgProcessor.PayloadCodec;
+import com.imgnote.IMGNoteServer.utils.MetricsTools;
 import com.imgnote.IMGNoteServer.utils.StringTools;
 import lombok.Data;
 
+import java.nio.charset.StandardCharsets;
+
 @Data
 public class NoteBook {
 
@@ -14,15 +18,41 @@ public class NoteBook {
 
     private Img img;
 
+    // 正文字节数
+    private long dataLength;
+
+    // 正文在图片中占用的字节数（压缩后）
+    private long storedLength;
+
     public NoteBook(Header header, String data, Img img) {
+        byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
         this.header = header;
         this.data = data;
         this.img = img;
-        this.isDataComplete = StringTools.getMD5OfString(data).equals(header.getDataMd5());
+        this.isDataComplete = StringTools.getMD5HexOfBytes(dataBytes).equals(header.getDataMd5());
+        this.dataLength = dataBytes.length;
+        this.storedLength = dataBytes.length;
     }
 
-    public NoteBook(Img img) {
+    /**
+     * @param storedBytes 图片中保存的正文，按 Header 中的布局与压缩方式还原
+     */
+    public NoteBook(Header header, byte[] storedBytes, Img img) {
+        long begin = System.nanoTime();
+        byte[] dataBytes = PayloadCodec.decode(header, storedBytes);
+        MetricsTools.recordStage(MetricsTools.STAGE_PAYLOAD_DECODE, begin, img.getWidth(), img.getHeight(), dataBytes.length);
+
+        begin = System.nanoTime();
+        this.header = header;
+        this.data = new String(dataBytes, StandardCharsets.UTF_8);
         this.img = img;
+        MetricsTools.recordStage(MetricsTools.STAGE_STRING_DECODE, begin, img.getWidth(), img.getHeight(), dataBytes.length);
+
+        begin = System.nanoTime();
+        this.isDataComplete = StringTools.getMD5HexOfBytes(storedBytes).equals(header.getDataMd5());
+        MetricsTools.recordStage(MetricsTools.STAGE_MD5, begin, img.getWidth(), img.getHeight(), storedBytes.length);
+        this.dataLength = dataBytes.length;
+        this.storedLength = storedBytes.length;
     }
 
 }
@@ -0,0 +1,22 @@
+package com.imgnote.IMGNoteServer.bean;
+
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import lombok.Data;
+
+@Data
+public class PayloadConfig {
+
+    // 正文压缩方式
+    private CompressionEnum compression = CompressionEnum.NONE;
+
+    // 正文分块大小（KB），每块独立压缩并记录在块索引表中
+    private int chunkSizeKb = 64;
+
+    // 数据区每个通道承载的位数 1-4，Header 固定为 1
+    private int bitsPerChannel = 1;
+
+    public int getChunkSize() {
+        return chunkSizeKb * 1024;
+    }
+
+}
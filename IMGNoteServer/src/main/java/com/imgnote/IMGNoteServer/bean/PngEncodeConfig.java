@@ -0,0 +1,20 @@
+package com.imgnote.IMGNoteServer.bean;
+
+import com.imgnote.IMGNoteServer.enums.PngFilterEnum;
+import lombok.Data;
+
+import java.util.zip.Deflater;
+
+@Data
+public class PngEncodeConfig {
+
+    // zlib 压缩等级 0-9，-1 为默认等级
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    // 行过滤策略
+    private PngFilterEnum filter = PngFilterEnum.ADAPTIVE;
+
+    // 每个IDAT分段的目标原始数据大小（KB），决定局部重编码的粒度
+    private int segmentSizeKb = 256;
+
+}
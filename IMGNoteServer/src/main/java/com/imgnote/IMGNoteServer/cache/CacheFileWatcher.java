@@ -0,0 +1,310 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import com.imgnote.IMGNoteServer.service.ImgService;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 笔记本数据库目录监听
+ * 监听 根目录/分类/笔记本 三层目录，图片被外部修改（导入、合并、迁移、恢复等）后：
+ * 文件指纹变化时使指纹失效并清除旧内容的缓存；随后在低优先级线程中预先解码，下次打开时直接命中缓存。
+ * 本服务自己写入的图片已在写入时处理过缓存，属性与写入后一致时跳过，不计算MD5也不预解码。
+ * 图片被删除或移走时只使指纹失效，同样内容的图片可能仍在别处，缓存条目交由容量与有效期淘汰。
+ */
+@Slf4j
+@Component
+public class CacheFileWatcher {
+
+    // 笔记本图片所在目录相对根目录的层级
+    private static final int NOTE_DEPTH = 2;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private FileIdentityManager fileIdentityManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DiskCacheManager diskCacheManager;
+
+    @Autowired
+    private LibraryIndexManager libraryIndexManager;
+
+    @Autowired
+    private CacheTaskExecutor cacheTaskExecutor;
+
+    @Autowired
+    private ImgService imgService;
+
+    @Autowired
+    private ExecutorService prewarmExecutor;
+
+    private WatchService watchService;
+
+    // 已注册的目录
+    private final Map<WatchKey, WatchedDir> watchedDirs = new ConcurrentHashMap<>();
+
+    private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+
+    // 等待处理的图片 -> 处理时间，同一图片的连续事件合并为一次
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    // 已提交预解码的图片，避免重复排队
+    private final Set<Path> prewarming = ConcurrentHashMap.newKeySet();
+
+    private static class WatchedDir {
+
+        private final Path dir;
+
+        private final int depth;
+
+        WatchedDir(Path dir, int depth) {
+            this.dir = dir;
+            this.depth = depth;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!appConfig.isWatchEnabled()) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("目录监听不可用: {}", e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(this::run, "Cache-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+        if (!appConfig.getWatchRoot().isBlank()) {
+            watch(Path.of(appConfig.getWatchRoot()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 开始监听笔记本数据库目录，已监听时直接返回
+     */
+    public void watch(Path root) {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (watchService == null || !Files.isDirectory(normalized) || !roots.add(normalized)) {
+            return;
+        }
+        List<Path> images = new ArrayList<>();
+        register(normalized, 0, images);
+        log.info("开始监听目录: {}, 图片 {} 个", normalized, images.size());
+    }
+
+    /**
+     * 注册目录及其下的分类、笔记本目录
+     * @param images 收集笔记本目录中已有的图片
+     */
+    private void register(Path dir, int depth, List<Path> images) {
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, new WatchedDir(dir, depth));
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("注册目录监听失败: {}, 错误信息: {}", dir, e.getMessage());
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                if (depth < NOTE_DEPTH && Files.isDirectory(child) && !isHidden(child)) {
+                    register(child, depth + 1, images);
+                } else if (depth == NOTE_DEPTH && ImgTools.isImageFile(child)) {
+                    images.add(child);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("读取目录失败: {}", dir);
+        }
+    }
+
+    /**
+     * 以 . 开头的目录不是分类或笔记本，如数据库根目录下的持久化缓存
+     */
+    private static boolean isHidden(Path dir) {
+        return dir.getFileName().toString().startsWith(".");
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key;
+                Long nextDue = pending.values().stream().min(Long::compare).orElse(null);
+                if (nextDue == null) {
+                    key = watchService.take();
+                } else {
+                    key = watchService.poll(Math.max(0, nextDue - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+                if (key != null) {
+                    handle(key);
+                }
+                flushPending();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.info("目录监听已停止");
+        }
+    }
+
+    private void handle(WatchKey key) {
+        WatchedDir watched = watchedDirs.get(key);
+        if (watched == null) {
+            key.cancel();
+            return;
+        }
+        long due = System.currentTimeMillis() + appConfig.getWatchDebounceMs();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // 事件丢失时重新注册并检查目录下的全部图片，已注册的目录不会重复注册
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                List<Path> images = new ArrayList<>();
+                register(watched.dir, watched.depth, images);
+                images.forEach(image -> pending.put(image, due));
+                continue;
+            }
+            Path child = watched.dir.resolve((Path) event.context());
+            if (watched.depth < NOTE_DEPTH) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child) && !isHidden(child)) {
+                    // 新目录中可能已有图片（整个目录被复制或移入），注册后一并检查
+                    List<Path> images = new ArrayList<>();
+                    register(child, watched.depth + 1, images);
+                    images.forEach(image -> pending.put(image, due));
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    // 目录被删除或移走，其中的图片不会再有单独的事件
+                    fileIdentityManager.invalidateUnder(child.toString());
+                }
+            } else if (ImgTools.isImageFile(child)) {
+                pending.put(child, due);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+            roots.remove(watched.dir);
+        }
+    }
+
+    private void flushPending() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() <= now) {
+                iterator.remove();
+                refresh(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 按当前文件属性检查图片：指纹变化时清除旧内容的缓存，新增或变化的图片提交预解码
+     */
+    private void refresh(Path image) {
+        String imagePath = image.toString();
+        libraryIndexManager.invalidate(imagePath);
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(image, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            fileIdentityManager.invalidate(imagePath);
+            return;
+        } catch (IOException e) {
+            log.warn("读取文件属性失败: {}", image);
+            return;
+        }
+
+        // 本服务写入的结果，写入时已清除旧内容的缓存
+        if (fileIdentityManager.isWrittenHere(imagePath, attributes)) {
+            return;
+        }
+
+        FileIdentityManager.FileIdentity identity = fileIdentityManager.getIdentity(imagePath);
+        if (identity != null) {
+            // 指纹与当前文件一致，已按当前内容读取过
+            if (identity.sameFile(attributes)) {
+                return;
+            }
+            String staleMd5 = fileIdentityManager.invalidate(imagePath);
+            if (staleMd5 != null) {
+                log.info("图片已被修改, 清除缓存: {}", image);
+                cacheTaskExecutor.execute("Cache-Cleanup", () -> {
+                    cacheManager.remove(staleMd5);
+                    diskCacheManager.remove(staleMd5);
+                });
+            }
+        }
+        prewarm(image);
+    }
+
+    private void prewarm(Path image) {
+        if (!appConfig.isPrewarmEnabled() || !prewarming.add(image)) {
+            return;
+        }
+        try {
+            prewarmExecutor.execute(() -> {
+                try {
+                    ReadParam param = new ReadParam();
+                    param.setImagePath(image.toString());
+                    if (imgService.prewarm(param)) {
+                        log.info("预解码完成: {}", image);
+                    }
+                } catch (BusinessException e) {
+                    // 图片中没有笔记本或已被删除
+                    log.debug("跳过预解码: {}, 错误信息: {}", image, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.warn("预解码失败: {}, 错误信息: {}", image, e.getMessage());
+                } finally {
+                    prewarming.remove(image);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prewarming.remove(image);
+        }
+    }
+
+}
@@ -1,23 +1,55 @@
 package com.imgnote.IMGNoteServer.cache;
 
-import com.imgnote.IMGNoteServer.bean.NoteBook;
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import com.imgnote.IMGNoteServer.utils.MetricsTools;
+import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 图片解析缓存管理器
+ * 按估算的内存占用（字节）限制容量，超出容量时淘汰最久未访问的条目（LRU），条目写入后超过TTL自动失效。
  */
 @Slf4j
+@Component
 public class CacheManager {
 
-    // 缓存阈值
-    private static final long CACHE_THRESHOLD = (long) (1024 * 1024 * 0.2);
+    // 每个条目除正文外的固定开销估算（Header、Map节点等）
+    private static final long ENTRY_OVERHEAD = 1024;
 
-    // 缓存存储结构：图片MD5 -> 解析结果
-    private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final long maxWeight;
+
+    private final long ttlMillis;
+
+    private final long minEntrySize;
+
+    // 缓存存储结构：图片MD5 -> 解析结果，按访问顺序排列
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long currentWeight;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder putCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    public CacheManager(AppConfig appConfig) {
+        this.maxWeight = appConfig.getCacheMaxSizeMb() * 1024 * 1024;
+        this.ttlMillis = appConfig.getCacheTtlMinutes() * 60 * 1000;
+        this.minEntrySize = appConfig.getCacheMinEntrySizeKb() * 1024;
+    }
 
     /**
      * 缓存条目类
@@ -25,61 +57,181 @@ public class CacheManager {
     @Getter
     public static class CacheEntry {
 
-        private final NoteBook noteBook;
+        private final CachedNoteBook noteBook;
+
+        private final long weight;
 
-        public CacheEntry(NoteBook noteBook) {
+        private final long createTime;
+
+        public CacheEntry(CachedNoteBook noteBook, long weight) {
             this.noteBook = noteBook;
+            this.weight = weight;
+            this.createTime = System.currentTimeMillis();
         }
     }
 
     /**
-     * 检查是否存在指定MD5的缓存
+     * 缓存统计信息
      */
-    public static boolean exists(String imageMd5) {
-        return cache.containsKey(imageMd5);
+    @Data
+    public static class CacheStats {
+
+        private int size;
+
+        private long weight;
+
+        private long maxWeight;
+
+        private long hitCount;
+
+        private long missCount;
+
+        private long putCount;
+
+        private long evictionCount;
+
+        private long expirationCount;
+
     }
 
     /**
-     * 获取缓存条目
+     * 检查是否存在指定MD5的缓存
      */
-    public static CacheEntry get(String imageMd5) {
+    public synchronized boolean exists(String imageMd5) {
+        CacheEntry entry = cache.get(imageMd5);
+        return entry != null && !isExpired(entry);
+    }
 
-        return cache.get(imageMd5);
+    /**
+     * 获取缓存条目，过期条目视为未命中
+     */
+    public synchronized CacheEntry get(String imageMd5) {
+        long begin = System.nanoTime();
+        CacheEntry entry = cache.get(imageMd5);
+        if (entry != null && isExpired(entry)) {
+            removeEntry(imageMd5);
+            expirationCount.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        MetricsTools.recordCacheGet(MetricsTools.TIER_MEMORY, entry != null, begin);
+        return entry;
     }
 
     /**
      * 添加缓存条目
      */
-    public static void put(String imageMd5, NoteBook noteBook) {
-        // 只有数据大小超过阈值才缓存
-        long dataSize = noteBook.getData().length();
-        if (noteBook.getData().length() >= CACHE_THRESHOLD) {
-            cache.put(imageMd5, new CacheEntry(noteBook));
-            log.info("添加缓存, 数据大小: {}", dataSize);
-        } else {
-            log.info("数据大小 {} 未达到缓存阈值 {} ，跳过缓存 ", dataSize, CACHE_THRESHOLD);
+    public void put(String imageMd5, CachedNoteBook noteBook) {
+        long dataSize = estimateDataSize(noteBook);
+        if (dataSize < minEntrySize) {
+            log.info("数据大小 {} 未达到缓存阈值 {} ，跳过缓存 ", dataSize, minEntrySize);
+            return;
         }
+        long begin = System.nanoTime();
+        long weight = estimateWeight(noteBook);
+        if (weight > maxWeight) {
+            log.info("数据大小 {} 超出缓存容量 {} ，跳过缓存 ", weight, maxWeight);
+            return;
+        }
+
+        synchronized (this) {
+            removeEntry(imageMd5);
+            cache.put(imageMd5, new CacheEntry(noteBook, weight));
+            currentWeight += weight;
+            putCount.increment();
+            evictIfNeeded();
+        }
+        MetricsTools.recordCachePut(MetricsTools.TIER_MEMORY, noteBook.getDataLength(), begin);
+        log.info("添加缓存, 数据大小: {}", dataSize);
     }
 
     /**
      * 清除缓存
      */
-    public static void remove(String imageMd5) {
-        cache.remove(imageMd5);
+    public synchronized void remove(String imageMd5) {
+        removeEntry(imageMd5);
     }
 
     /**
      * 清除所有缓存
      */
-    public static void clear() {
+    public synchronized void clear() {
         cache.clear();
+        currentWeight = 0;
         log.info("缓存已清空");
     }
 
+    /**
+     * 定期清理过期条目
+     */
+    @Scheduled(fixedDelayString = "${imgnote.cache.cleanup-interval-ms:60000}")
+    public synchronized void clearExpired() {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            if (isExpired(entry)) {
+                iterator.remove();
+                currentWeight -= entry.getWeight();
+                expirationCount.increment();
+            }
+        }
+    }
+
     /**
      * 获取缓存统计信息
      */
-    public static String getCacheStats() {
-        return String.format("当前缓存条目数: %d", cache.size());
+    public synchronized CacheStats getCacheStats() {
+        CacheStats stats = new CacheStats();
+        stats.setSize(cache.size());
+        stats.setWeight(currentWeight);
+        stats.setMaxWeight(maxWeight);
+        stats.setHitCount(hitCount.sum());
+        stats.setMissCount(missCount.sum());
+        stats.setPutCount(putCount.sum());
+        stats.setEvictionCount(evictionCount.sum());
+        stats.setExpirationCount(expirationCount.sum());
+        return stats;
+    }
+
+    private void removeEntry(String imageMd5) {
+        CacheEntry removed = cache.remove(imageMd5);
+        if (removed != null) {
+            currentWeight -= removed.getWeight();
+        }
+    }
+
+    /**
+     * 超出容量时从最久未访问的条目开始淘汰
+     */
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CacheEntry>> iterator = cache.entrySet().iterator();
+        while (currentWeight > maxWeight && iterator.hasNext()) {
+            CacheEntry entry = iterator.next().getValue();
+            iterator.remove();
+            currentWeight -= entry.getWeight();
+            evictionCount.increment();
+        }
+    }
+
+    private boolean isExpired(CacheEntry entry) {
+        return ttlMillis > 0 && System.currentTimeMillis() - entry.getCreateTime() > ttlMillis;
+    }
+
+    /**
+     * 估算条目占用的内存：正文加上固定开销
+     */
+    private static long estimateWeight(CachedNoteBook noteBook) {
+        return ENTRY_OVERHEAD + estimateDataSize(noteBook);
+    }
+
+    /**
+     * 估算正文占用的字节数，按每字符2字节计，准入阈值与条目权重使用同一口径
+     */
+    private static long estimateDataSize(CachedNoteBook noteBook) {
+        return (long) noteBook.getData().length() * 2;
     }
 }
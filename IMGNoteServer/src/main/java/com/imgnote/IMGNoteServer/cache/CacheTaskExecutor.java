@@ -0,0 +1,126 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存后台任务执行器
+ * 写入缓存、清除过期缓存等任务共用固定数量的线程与有界队列，队列满时丢弃任务：
+ * 缓存只是加速手段，丢弃写入只会让下次读取重新解码，文件指纹变化后旧条目也不会再被命中。
+ */
+@Slf4j
+@Component
+public class CacheTaskExecutor {
+
+    // 关闭时等待队列中任务完成的时间
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CacheTaskExecutor(AppConfig appConfig) {
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(appConfig.getCacheTaskThreads(), appConfig.getCacheTaskThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(appConfig.getCacheTaskQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Cache-Task-" + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 缓存任务统计信息
+     */
+    @Data
+    public static class CacheTaskStats {
+
+        private int poolSize;
+
+        private int activeCount;
+
+        private int queueSize;
+
+        private long submittedCount;
+
+        private long completedCount;
+
+        private long failedCount;
+
+        private long rejectedCount;
+
+    }
+
+    /**
+     * 提交任务，队列已满时丢弃
+     * @param name 任务名称，用于日志
+     */
+    public void execute(String name, Runnable task) {
+        submittedCount.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    completedCount.increment();
+                } catch (Exception e) {
+                    failedCount.increment();
+                    log.warn("缓存任务 {} 执行失败: {}", name, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            log.warn("缓存任务队列已满, 丢弃任务: {}", name);
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public CacheTaskStats getStats() {
+        CacheTaskStats stats = new CacheTaskStats();
+        stats.setPoolSize(executor.getPoolSize());
+        stats.setActiveCount(executor.getActiveCount());
+        stats.setQueueSize(executor.getQueue().size());
+        stats.setSubmittedCount(submittedCount.sum());
+        stats.setCompletedCount(completedCount.sum());
+        stats.setFailedCount(failedCount.sum());
+        stats.setRejectedCount(rejectedCount.sum());
+        return stats;
+    }
+
+    /**
+     * 关闭时等待已提交的任务完成，避免持久化缓存写到一半
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("缓存任务未在 {} 秒内完成, 剩余 {} 个任务被丢弃", SHUTDOWN_TIMEOUT_SECONDS, executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Img;
+import com.imgnote.IMGNoteServer.bean.NoteBook;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+import lombok.Getter;
+
+/**
+ * 缓存中保存的笔记本
+ * 只保留读取响应需要的字段，写入缓存后不再修改。
+ */
+@Getter
+public class CachedNoteBook {
+
+    private final Header header;
+
+    private final String data;
+
+    private final Boolean isDataComplete;
+
+    private final int width;
+
+    private final int height;
+
+    private final long maxContentLen;
+
+    private final long maxStoredLen;
+
+    // 正文字节数
+    private final long dataLength;
+
+    // 正文在图片中占用的字节数（压缩后）
+    private final long storedLength;
+
+    public CachedNoteBook(Header header, String data, Boolean isDataComplete, int width, int height, long maxContentLen,
+                          long maxStoredLen, long dataLength, long storedLength) {
+        this.header = header;
+        this.data = data;
+        this.isDataComplete = isDataComplete;
+        this.width = width;
+        this.height = height;
+        this.maxContentLen = maxContentLen;
+        this.maxStoredLen = maxStoredLen;
+        this.dataLength = dataLength;
+        this.storedLength = storedLength;
+    }
+
+    public static CachedNoteBook of(NoteBook noteBook) {
+        Img img = noteBook.getImg();
+        return new CachedNoteBook(noteBook.getHeader(), noteBook.getData(), noteBook.getIsDataComplete(),
+                img.getWidth(), img.getHeight(), img.getMaxContentLen(), img.getMaxStoredLen(),
+                noteBook.getDataLength(), noteBook.getStoredLength());
+    }
+
+    /**
+     * 按当前正文的压缩率估算可写入的正文字节数
+     */
+    public long getEstimatedContentLen() {
+        return ImgTools.getEstimatedContentLen(maxContentLen, maxStoredLen, dataLength, storedLength);
+    }
+
+    public Img getImg() {
+        return new Img(width, height, maxContentLen, maxStoredLen);
+    }
+
+}
@@ -0,0 +1,417 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Pixel;
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
+import com.imgnote.IMGNoteServer.enums.EncodingEnum;
+import com.imgnote.IMGNoteServer.utils.MetricsTools;
+import com.imgnote.IMGNoteServer.utils.StringTools;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化解析缓存（二级缓存）
+ * 以图片内容MD5为键，每个条目一个文件，保存解码后的Header与正文，服务重启后仍可命中。
+ * 条目由两段组成：文件指纹段（用于启动时恢复 {@link FileIdentityManager}，避免重新计算MD5）与数据段，
+ * 两段各带CRC32校验，校验失败的条目直接删除。总大小超出上限时按最近访问时间淘汰。
+ * 缓存目录位于笔记本数据库根目录下，在得知根目录（启动配置或首次查询图库索引）后启用；设置了密码的笔记本不写入持久化缓存。
+ */
+@Slf4j
+@Component
+public class DiskCacheManager {
+
+    private static final int MAGIC = 0x494D4443;
+
+    private static final int VERSION = 2;
+
+    private static final String SUFFIX = ".cache";
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private FileIdentityManager fileIdentityManager;
+
+    // 未设置密码时的校验码
+    private static final String EMPTY_VERIFY_CODE = StringTools.getMD5HexOfString("");
+
+    private volatile Path cacheDir;
+
+    private long maxSize;
+
+    private final AtomicLong totalSize = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        maxSize = appConfig.getDiskCacheMaxSizeMb() * 1024 * 1024;
+        if (!appConfig.getWatchRoot().isBlank()) {
+            open(Path.of(appConfig.getWatchRoot()));
+        }
+    }
+
+    /**
+     * 在笔记本数据库根目录下启用缓存，根目录变化时切换到新目录
+     * 配置的缓存目录为相对路径时相对于根目录。
+     */
+    public synchronized void open(Path root) {
+        if (!appConfig.isDiskCacheEnabled()) {
+            return;
+        }
+        Path dir = root.toAbsolutePath().normalize().resolve(appConfig.getDiskCacheDir()).normalize();
+        if (dir.equals(cacheDir)) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            log.warn("持久化缓存目录创建失败, 已禁用: {}", e.getMessage());
+            cacheDir = null;
+            return;
+        }
+
+        // 恢复文件指纹并统计占用
+        int count = 0;
+        totalSize.set(0);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                if (restoreIdentity(file)) {
+                    totalSize.addAndGet(Files.size(file));
+                    count++;
+                } else {
+                    delete(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("持久化缓存加载失败: {}", e.getMessage());
+        }
+        cacheDir = dir;
+        log.info("持久化缓存已加载: {}, 条目数: {}, 占用: {}字节", dir, count, totalSize.get());
+    }
+
+    public boolean isEnabled() {
+        return cacheDir != null;
+    }
+
+    /**
+     * 缓存条目占用的总字节数
+     */
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    /**
+     * 读取缓存条目
+     * @return 不存在或校验失败时返回 null
+     */
+    public CachedNoteBook get(String imageMd5) {
+        Path dir = cacheDir;
+        if (dir == null || !KEY_PATTERN.matcher(imageMd5).matches()) {
+            return null;
+        }
+        long begin = System.nanoTime();
+        CachedNoteBook noteBook = read(dir, imageMd5);
+        MetricsTools.recordCacheGet(MetricsTools.TIER_DISK, noteBook != null, begin);
+        return noteBook;
+    }
+
+    private CachedNoteBook read(Path dir, String imageMd5) {
+        Path file = dir.resolve(imageMd5 + SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readFileHeader(in);
+            readSection(in);
+            CachedNoteBook noteBook = readPayload(readSection(in));
+            // 更新访问时间，淘汰时按此排序
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return noteBook;
+        } catch (IOException | RuntimeException e) {
+            log.warn("持久化缓存条目损坏, 已删除: {}, {}", file.getFileName(), e.getMessage());
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存条目，设置了密码的笔记本不写入，明文正文不离开图片保存到磁盘
+     * @param imagePath 图片路径，用于记录文件指纹
+     */
+    public void put(String imageMd5, String imagePath, CachedNoteBook noteBook) {
+        Path dir = cacheDir;
+        if (dir == null || !KEY_PATTERN.matcher(imageMd5).matches() || isProtected(noteBook.getHeader())) {
+            return;
+        }
+        FileIdentityManager.FileIdentity identity = fileIdentityManager.getIdentity(imagePath);
+        if (identity == null || !imageMd5.equals(identity.getContentMd5())) {
+            // 文件已变化，条目对应的内容不再是当前文件
+            return;
+        }
+
+        long begin = System.nanoTime();
+        Path file = dir.resolve(imageMd5 + SUFFIX);
+        Path temp = null;
+        try {
+            byte[] identitySection = buildIdentity(Path.of(imagePath).toAbsolutePath().normalize().toString(), identity);
+            byte[] payloadSection = buildPayload(noteBook);
+            temp = Files.createTempFile(dir, imageMd5, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                DataOutputStream dataOut = new DataOutputStream(out);
+                dataOut.writeInt(MAGIC);
+                dataOut.writeInt(VERSION);
+                writeSection(dataOut, identitySection);
+                writeSection(dataOut, payloadSection);
+            }
+            long oldSize = Files.exists(file) ? Files.size(file) : 0;
+            long newSize = Files.size(temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            totalSize.addAndGet(newSize - oldSize);
+            MetricsTools.recordCachePut(MetricsTools.TIER_DISK, noteBook.getDataLength(), begin);
+        } catch (IOException e) {
+            log.warn("写入持久化缓存失败: {}", e.getMessage());
+        } finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+        evictIfNeeded(dir);
+    }
+
+    private static boolean isProtected(Header header) {
+        if (header.getEncryptionType() != null && header.getEncryptionType() != EncodeTypeEnum.NONE) {
+            return true;
+        }
+        String verifyCode = header.getVerifyCode();
+        return verifyCode != null && !verifyCode.isEmpty() && !EMPTY_VERIFY_CODE.equals(verifyCode);
+    }
+
+    /**
+     * 删除缓存条目
+     */
+    public void remove(String imageMd5) {
+        Path dir = cacheDir;
+        if (dir == null || !KEY_PATTERN.matcher(imageMd5).matches()) {
+            return;
+        }
+        Path file = dir.resolve(imageMd5 + SUFFIX);
+        if (Files.exists(file)) {
+            long size = 0;
+            try {
+                size = Files.size(file);
+            } catch (IOException ignored) {
+            }
+            if (delete(file)) {
+                totalSize.addAndGet(-size);
+            }
+        }
+    }
+
+    /**
+     * 超出容量时按最近访问时间从旧到新删除
+     */
+    private synchronized void evictIfNeeded(Path dir) {
+        if (totalSize.get() <= maxSize) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("持久化缓存清理失败: {}", e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(DiskCacheManager::lastModified));
+        for (Path file : files) {
+            if (totalSize.get() <= maxSize) {
+                break;
+            }
+            try {
+                long size = Files.size(file);
+                if (delete(file)) {
+                    totalSize.addAndGet(-size);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private boolean restoreIdentity(Path file) {
+        try (InputStream fileIn = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 1024));
+            readFileHeader(in);
+            DataInputStream identity = new DataInputStream(new ByteArrayInputStream(readSection(in)));
+            String imagePath = identity.readUTF();
+            long size = identity.readLong();
+            long lastModified = identity.readLong();
+            String fileKey = identity.readUTF();
+            String contentMd5 = identity.readUTF();
+            if (!file.getFileName().toString().equals(contentMd5 + SUFFIX)) {
+                return false;
+            }
+            fileIdentityManager.seed(imagePath, new FileIdentityManager.FileIdentity(size, lastModified, fileKey, contentMd5));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static byte[] buildIdentity(String imagePath, FileIdentityManager.FileIdentity identity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(imagePath);
+        out.writeLong(identity.getSize());
+        out.writeLong(identity.getLastModified());
+        out.writeUTF(identity.getFileKey());
+        out.writeUTF(identity.getContentMd5());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] buildPayload(CachedNoteBook noteBook) throws IOException {
+        byte[] data = noteBook.getData().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        Header header = noteBook.getHeader();
+        out.writeShort(header.getRecognitionShort());
+        out.writeInt(header.getVersion() == null ? 0 : header.getVersion());
+        out.writeUTF(header.getEncryptionType().name());
+        out.writeUTF(header.getEncoding().name());
+        out.writeInt(header.getStartPixel().getX());
+        out.writeInt(header.getStartPixel().getY());
+        out.writeInt(header.getEndPixel().getX());
+        out.writeInt(header.getEndPixel().getY());
+        out.writeLong(header.getTime());
+        out.writeUTF(Objects.toString(header.getDataMd5(), ""));
+        out.writeUTF(Objects.toString(header.getVerifyCode(), ""));
+        out.writeUTF(header.getCompression().name());
+        out.writeUTF(header.getLayout().name());
+        out.writeInt(header.getBitsPerChannel());
+        out.writeInt(header.getPaddingBytes());
+        out.writeInt(noteBook.getWidth());
+        out.writeInt(noteBook.getHeight());
+        out.writeLong(noteBook.getMaxContentLen());
+        out.writeLong(noteBook.getMaxStoredLen());
+        out.writeLong(noteBook.getStoredLength());
+        out.writeBoolean(Boolean.TRUE.equals(noteBook.getIsDataComplete()));
+        out.writeInt(data.length);
+        out.write(data);
+        return bytes.toByteArray();
+    }
+
+    private static CachedNoteBook readPayload(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Header header = new Header();
+        header.setRecognitionShort(in.readShort());
+        header.setVersion(in.readInt());
+        header.setEncryptionType(EncodeTypeEnum.valueOf(in.readUTF()));
+        header.setEncoding(EncodingEnum.valueOf(in.readUTF()));
+        header.setStartPixel(new Pixel(in.readInt(), in.readInt()));
+        header.setEndPixel(new Pixel(in.readInt(), in.readInt()));
+        header.setTime(in.readLong());
+        header.setDataMd5(in.readUTF());
+        header.setVerifyCode(in.readUTF());
+        header.setCompression(CompressionEnum.valueOf(in.readUTF()));
+        header.setLayout(DataLayoutEnum.valueOf(in.readUTF()));
+        header.setBitsPerChannel(in.readInt());
+        header.setPaddingBytes(in.readInt());
+        int width = in.readInt();
+        int height = in.readInt();
+        long maxContentLen = in.readLong();
+        long maxStoredLen = in.readLong();
+        long storedLength = in.readLong();
+        // 正文压缩时 MD5 按压缩后的字节计算，直接使用写入时的结果
+        boolean isDataComplete = in.readBoolean();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new CachedNoteBook(header, new String(data, StandardCharsets.UTF_8), isDataComplete, width, height, maxContentLen,
+                maxStoredLen, data.length, storedLength);
+    }
+
+    private static void writeSection(DataOutputStream out, byte[] section) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(section);
+        out.writeInt(section.length);
+        out.writeInt((int) crc.getValue());
+        out.write(section);
+    }
+
+    /**
+     * 校验文件头
+     */
+    private static void readFileHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("文件头不匹配");
+        }
+    }
+
+    /**
+     * 读取一段数据并校验CRC
+     */
+    private static byte[] readSection(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        int expectedCrc = in.readInt();
+        if (length < 0) {
+            throw new IOException("条目长度非法");
+        }
+        byte[] section = new byte[length];
+        in.readFully(section);
+        CRC32 crc = new CRC32();
+        crc.update(section);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("CRC校验失败");
+        }
+        return section;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除持久化缓存文件失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+}
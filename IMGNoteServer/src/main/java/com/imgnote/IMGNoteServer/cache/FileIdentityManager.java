@@ -0,0 +1,165 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import com.imgnote.IMGNoteServer.utils.StringTools;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件标识管理器
+ * 以 路径 + 大小 + 修改时间（+ inode）作为文件指纹，指纹未变化时直接返回记录的内容MD5，
+ * 只有指纹变化时才重新读取整个文件计算MD5。
+ */
+@Slf4j
+@Component
+public class FileIdentityManager {
+
+    // 规范化路径 -> 指纹
+    private final Map<String, FileIdentity> identities = new ConcurrentHashMap<>();
+
+    // 规范化路径 -> 本服务最近一次写入后的文件属性（不含MD5），用于区分外部修改
+    private final Map<String, FileIdentity> written = new ConcurrentHashMap<>();
+
+    /**
+     * 文件指纹
+     */
+    @Getter
+    public static class FileIdentity {
+
+        private final long size;
+
+        private final long lastModified;
+
+        // inode 等文件系统唯一标识的字符串形式，Windows 上为空串
+        private final String fileKey;
+
+        private final String contentMd5;
+
+        public FileIdentity(long size, long lastModified, String fileKey, String contentMd5) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.contentMd5 = contentMd5;
+        }
+
+        public boolean sameFile(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKeyOf(attributes));
+        }
+    }
+
+    /**
+     * 获取文件内容MD5，指纹未变化时不读取文件内容
+     */
+    public String getContentMd5(String filePath) {
+        Path path = normalize(filePath);
+        BasicFileAttributes attributes = readAttributes(path);
+
+        FileIdentity identity = identities.get(path.toString());
+        if (identity != null && identity.sameFile(attributes)) {
+            return identity.getContentMd5();
+        }
+
+        String contentMd5 = StringTools.getFileMD5(filePath);
+        // 计算期间文件可能被修改，以计算前的指纹记录，下次访问时会重新校验
+        identities.put(path.toString(), new FileIdentity(attributes.size(),
+                attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKeyOf(attributes), contentMd5));
+        return contentMd5;
+    }
+
+    /**
+     * 获取已记录的文件指纹，不访问文件
+     */
+    public FileIdentity getIdentity(String filePath) {
+        return identities.get(normalize(filePath).toString());
+    }
+
+    /**
+     * 预置文件指纹（如从持久化缓存恢复），已有记录时不覆盖
+     */
+    public void seed(String filePath, FileIdentity identity) {
+        identities.putIfAbsent(normalize(filePath).toString(), identity);
+    }
+
+    /**
+     * 使文件指纹失效
+     * @return 失效前记录的内容MD5，未记录时返回 null
+     */
+    public String invalidate(String filePath) {
+        FileIdentity identity = identities.remove(normalize(filePath).toString());
+        return identity == null ? null : identity.getContentMd5();
+    }
+
+    /**
+     * 使目录下所有文件的指纹失效，用于目录被删除或移走时
+     */
+    public void invalidateUnder(String dirPath) {
+        Path dir = normalize(dirPath);
+        identities.keySet().removeIf(path -> Path.of(path).startsWith(dir));
+        written.keySet().removeIf(path -> Path.of(path).startsWith(dir));
+    }
+
+    /**
+     * 记录本服务写入后的文件属性，写入后不计算MD5，下次读取时再计算
+     */
+    public void markWritten(String filePath) {
+        Path path = normalize(filePath);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            written.put(path.toString(), new FileIdentity(attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKeyOf(attributes), null));
+        } catch (IOException e) {
+            written.remove(path.toString());
+        }
+    }
+
+    /**
+     * 文件是否仍是本服务最近一次写入的结果，属性不一致时说明之后被外部修改，清除记录
+     */
+    public boolean isWrittenHere(String filePath, BasicFileAttributes attributes) {
+        String path = normalize(filePath).toString();
+        FileIdentity identity = written.get(path);
+        if (identity == null) {
+            return false;
+        }
+        if (identity.sameFile(attributes)) {
+            return true;
+        }
+        written.remove(path, identity);
+        return false;
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey == null ? "" : fileKey.toString();
+    }
+
+    private static Path normalize(String filePath) {
+        return Path.of(filePath).toAbsolutePath().normalize();
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            log.error("文件不存在: {}", path);
+            throw new BusinessException(ResponseCodeEnum.CODE_502);
+        } catch (IOException e) {
+            log.error("读取文件属性失败: {}", e.getMessage(), e);
+            throw new BusinessException(ResponseCodeEnum.CODE_502);
+        }
+    }
+
+}
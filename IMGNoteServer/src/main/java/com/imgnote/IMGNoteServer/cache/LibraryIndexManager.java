@@ -0,0 +1,84 @@
+package com.imgnote.IMGNoteServer.cache;
+
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图库索引
+ * 与文件指纹相同，以 路径 + 大小 + 修改时间（+ inode）判断图片是否变化，未变化时直接返回记录的索引条目。
+ */
+@Component
+public class LibraryIndexManager {
+
+    // 规范化路径 -> 索引条目
+    private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+
+    private static class IndexEntry {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String fileKey;
+
+        private final LibraryItemVo item;
+
+        IndexEntry(BasicFileAttributes attributes, LibraryItemVo item) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            this.fileKey = fileKeyOf(attributes);
+            this.item = item;
+        }
+
+        boolean sameFile(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKeyOf(attributes));
+        }
+    }
+
+    /**
+     * 获取图片的索引条目，图片在记录后发生变化时返回 null
+     * @param attributes 图片当前的文件属性
+     */
+    public LibraryItemVo get(Path path, BasicFileAttributes attributes) {
+        IndexEntry entry = entries.get(path.toString());
+        return entry != null && entry.sameFile(attributes) ? entry.item : null;
+    }
+
+    /**
+     * 记录索引条目
+     * @param attributes 解析前读取的文件属性，解析期间文件被修改时下次查询会重新解析
+     */
+    public void put(Path path, BasicFileAttributes attributes, LibraryItemVo item) {
+        entries.put(path.toString(), new IndexEntry(attributes, item));
+    }
+
+    /**
+     * 使图片的索引条目失效
+     */
+    public void invalidate(String imagePath) {
+        entries.remove(Path.of(imagePath).toAbsolutePath().normalize().toString());
+    }
+
+    /**
+     * 删除目录下本次扫描中不存在的图片的条目
+     * @param paths 本次扫描到的图片
+     */
+    public void retain(Path root, Set<String> paths) {
+        entries.keySet().removeIf(path -> Path.of(path).startsWith(root) && !paths.contains(path));
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey == null ? "" : fileKey.toString();
+    }
+
+}
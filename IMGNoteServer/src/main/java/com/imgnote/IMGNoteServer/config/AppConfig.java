@@ -0,0 +1,182 @@
+package com.imgnote.IMGNoteServer.config;
+
+import com.imgnote.IMGNoteServer.bean.PayloadConfig;
+import com.imgnote.IMGNoteServer.bean.PngEncodeConfig;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.FsyncPolicyEnum;
+import com.imgnote.IMGNoteServer.enums.PngFilterEnum;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Component
+public class AppConfig {
+
+    /**
+     * PNG zlib 压缩等级 0-9，-1 为默认等级
+     */
+    @Value("${imgnote.png.compression-level:-1}")
+    private int pngCompressionLevel;
+
+    /**
+     * PNG 行过滤策略
+     */
+    @Value("${imgnote.png.filter:ADAPTIVE}")
+    private PngFilterEnum pngFilter;
+
+    /**
+     * PNG IDAT 分段大小（KB）
+     */
+    @Value("${imgnote.png.segment-size-kb:256}")
+    private int pngSegmentSizeKb;
+
+    /**
+     * 解析缓存容量（MB），按估算的内存占用计算
+     */
+    @Value("${imgnote.cache.max-size-mb:256}")
+    private long cacheMaxSizeMb;
+
+    /**
+     * 缓存条目有效期（分钟），0 表示不过期
+     */
+    @Value("${imgnote.cache.ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    /**
+     * 正文小于该大小（KB）的笔记本不缓存，0 表示全部缓存
+     */
+    @Value("${imgnote.cache.min-entry-size-kb:0}")
+    private long cacheMinEntrySizeKb;
+
+    /**
+     * 缓存后台任务线程数
+     */
+    @Value("${imgnote.cache.task.threads:2}")
+    private int cacheTaskThreads;
+
+    /**
+     * 缓存后台任务队列长度，队列满时丢弃任务
+     */
+    @Value("${imgnote.cache.task.queue-size:256}")
+    private int cacheTaskQueueSize;
+
+    /**
+     * 是否启用持久化解析缓存
+     */
+    @Value("${imgnote.cache.disk.enabled:true}")
+    private boolean diskCacheEnabled;
+
+    /**
+     * 持久化解析缓存目录，相对路径时相对于笔记本数据库根目录
+     */
+    @Value("${imgnote.cache.disk.dir:.imgnote/decode-cache}")
+    private String diskCacheDir;
+
+    /**
+     * 持久化解析缓存容量（MB）
+     */
+    @Value("${imgnote.cache.disk.max-size-mb:1024}")
+    private long diskCacheMaxSizeMb;
+
+    /**
+     * 是否监听笔记本数据库目录，图片被外部修改时使缓存失效并在后台预先解码
+     */
+    @Value("${imgnote.watch.enabled:true}")
+    private boolean watchEnabled;
+
+    /**
+     * 启动时监听的笔记本数据库目录，为空时在首次查询图库索引时开始监听
+     */
+    @Value("${imgnote.watch.root:}")
+    private String watchRoot;
+
+    /**
+     * 同一图片的变化事件合并的时间窗口（毫秒）
+     */
+    @Value("${imgnote.watch.debounce-ms:500}")
+    private long watchDebounceMs;
+
+    /**
+     * 是否在图片变化后预先解码
+     */
+    @Value("${imgnote.watch.prewarm-enabled:true}")
+    private boolean prewarmEnabled;
+
+    /**
+     * 预解码任务队列长度，队列满时丢弃任务
+     */
+    @Value("${imgnote.watch.prewarm-queue-size:64}")
+    private int prewarmQueueSize;
+
+    /**
+     * 是否启用数据区并行编解码
+     */
+    @Value("${imgnote.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    /**
+     * 并行编解码线程数，0 表示使用CPU核数
+     */
+    @Value("${imgnote.parallel.threads:0}")
+    private int parallelThreads;
+
+    /**
+     * 批量读取的并发线程数，0 表示使用CPU核数
+     */
+    @Value("${imgnote.batch.threads:0}")
+    private int batchThreads;
+
+    /**
+     * 批量读取单次请求的最大图片数
+     */
+    @Value("${imgnote.batch.max-size:500}")
+    private int batchMaxSize;
+
+    /**
+     * 是否启用增量写入，新正文能放下时沿用原起点，只写入变化的部分
+     */
+    @Value("${imgnote.write.delta-enabled:true}")
+    private boolean deltaWriteEnabled;
+
+    /**
+     * 正文压缩方式，压缩后增量写入只能保留改动之前的像素
+     */
+    @Value("${imgnote.write.compression:NONE}")
+    private CompressionEnum payloadCompression;
+
+    /**
+     * 正文分块大小（KB），每块独立压缩并记录在块索引表中，范围读取时只解码所需的块
+     */
+    @Value("${imgnote.write.chunk-size-kb:64}")
+    private int chunkSizeKb;
+
+    /**
+     * 数据区每个通道承载的位数 1-4，位数越多容量越大、占用的像素越少，对图片的改动越明显
+     */
+    @Value("${imgnote.write.bits-per-channel:1}")
+    private int bitsPerChannel;
+
+    /**
+     * 保存图片时的刷盘策略
+     */
+    @Value("${imgnote.save.fsync-policy:ALWAYS}")
+    private FsyncPolicyEnum fsyncPolicy;
+
+    public PayloadConfig getPayloadConfig() {
+        PayloadConfig config = new PayloadConfig();
+        config.setCompression(payloadCompression);
+        config.setChunkSizeKb(chunkSizeKb);
+        config.setBitsPerChannel(bitsPerChannel);
+        return config;
+    }
+
+    public PngEncodeConfig getPngEncodeConfig() {
+        PngEncodeConfig config = new PngEncodeConfig();
+        config.setCompressionLevel(pngCompressionLevel);
+        config.setFilter(pngFilter);
+        config.setSegmentSizeKb(pngSegmentSizeKb);
+        return config;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.imgnote.IMGNoteServer.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * 请求处理线程模型由 spring.threads.virtual.enabled 控制，Java 21 以下即使开启也使用平台线程池
+     */
+    @PostConstruct
+    public void logThreadingModel() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("请求处理使用虚拟线程");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.info("当前 Java {} 不支持虚拟线程, 请求处理使用平台线程池", Runtime.version().feature());
+        } else {
+            log.info("请求处理使用平台线程池");
+        }
+    }
+
+    /**
+     * 图片条带并行编解码线程池，与公共池隔离，避免任务中的文件读取阻塞其他并行流
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool stripePool() {
+        int threads = appConfig.getParallelThreads() > 0
+                ? appConfig.getParallelThreads()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Stripe-Worker-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 批量读取线程池，线程数固定，队列有界；队列满时由提交请求的线程自己执行，限制同时解码的图片数
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchReadExecutor() {
+        int threads = appConfig.getBatchThreads() > 0
+                ? appConfig.getBatchThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(appConfig.getBatchMaxSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Batch-Read-" + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 预解码线程池，单个低优先级线程，顺序解码，不占用条带并行线程；队列满时拒绝提交，由提交方丢弃任务，只影响缓存命中率
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService prewarmExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(appConfig.getPrewarmQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Cache-Prewarm");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
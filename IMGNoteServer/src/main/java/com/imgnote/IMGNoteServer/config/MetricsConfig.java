@@ -0,0 +1,88 @@
+package com.imgnote.IMGNoteServer.config;
+
+import com.imgnote.IMGNoteServer.cache.CacheManager;
+import com.imgnote.IMGNoteServer.cache.CacheTaskExecutor;
+import com.imgnote.IMGNoteServer.cache.DiskCacheManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 缓存与缓存后台任务的统计信息注册为指标，抓取时读取当前值
+ * 编解码各阶段的耗时由 {@link com.imgnote.IMGNoteServer.utils.MetricsTools} 在调用处记录。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DiskCacheManager diskCacheManager;
+
+    @Autowired
+    private CacheTaskExecutor cacheTaskExecutor;
+
+    @Bean
+    public MeterBinder cacheMetrics() {
+        return registry -> {
+            Gauge.builder("imgnote.cache.entries", cacheManager, manager -> manager.getCacheStats().getSize())
+                    .register(registry);
+            Gauge.builder("imgnote.cache.weight", cacheManager, manager -> manager.getCacheStats().getWeight())
+                    .baseUnit("bytes")
+                    .tag("tier", "memory")
+                    .register(registry);
+            Gauge.builder("imgnote.cache.weight", diskCacheManager, DiskCacheManager::getTotalSize)
+                    .baseUnit("bytes")
+                    .tag("tier", "disk")
+                    .register(registry);
+            Gauge.builder("imgnote.cache.max.weight", cacheManager, manager -> manager.getCacheStats().getMaxWeight())
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.requests", cacheManager, manager -> manager.getCacheStats().getHitCount())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.requests", cacheManager, manager -> manager.getCacheStats().getMissCount())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.puts", cacheManager, manager -> manager.getCacheStats().getPutCount())
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.removals", cacheManager, manager -> manager.getCacheStats().getEvictionCount())
+                    .tag("cause", "eviction")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.removals", cacheManager, manager -> manager.getCacheStats().getExpirationCount())
+                    .tag("cause", "expiration")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder cacheTaskMetrics() {
+        return registry -> {
+            Gauge.builder("imgnote.cache.task.threads", cacheTaskExecutor, executor -> executor.getStats().getPoolSize())
+                    .tag("state", "pool")
+                    .register(registry);
+            Gauge.builder("imgnote.cache.task.threads", cacheTaskExecutor, executor -> executor.getStats().getActiveCount())
+                    .tag("state", "active")
+                    .register(registry);
+            Gauge.builder("imgnote.cache.task.queued", cacheTaskExecutor, executor -> executor.getStats().getQueueSize())
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.task.tasks", cacheTaskExecutor, executor -> executor.getStats().getSubmittedCount())
+                    .tag("state", "submitted")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.task.tasks", cacheTaskExecutor, executor -> executor.getStats().getCompletedCount())
+                    .tag("state", "completed")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.task.tasks", cacheTaskExecutor, executor -> executor.getStats().getFailedCount())
+                    .tag("state", "failed")
+                    .register(registry);
+            FunctionCounter.builder("imgnote.cache.task.tasks", cacheTaskExecutor, executor -> executor.getStats().getRejectedCount())
+                    .tag("state", "rejected")
+                    .register(registry);
+        };
+    }
+
+}
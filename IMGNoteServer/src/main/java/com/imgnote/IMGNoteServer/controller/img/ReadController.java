@@ -1,15 +1,34 @@
 package com.imgnote.IMGNoteServer.controller.img;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imgnote.IMGNoteServer.Entity.param.ReadBatchParam;
 import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.Entity.param.ReadRangeParam;
+import com.imgnote.IMGNoteServer.Entity.vo.ImgVo;
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadBatchItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadRangeVo;
 import com.imgnote.IMGNoteServer.Entity.vo.ResponseVo;
-import com.imgnote.IMGNoteServer.bean.NoteBook;
+import com.imgnote.IMGNoteServer.Entity.vo.StreamLineVo;
+import com.imgnote.IMGNoteServer.ImgProcessor.NoteTextStream;
+import com.imgnote.IMGNoteServer.bean.Header;
 import com.imgnote.IMGNoteServer.controller.common.BaseController;
+import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
 import com.imgnote.IMGNoteServer.service.ImgService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 @Slf4j
 @Validated
@@ -17,15 +36,108 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/notebook")
 public class ReadController extends BaseController {
 
+    // 流式读取时每个文本块的字节数
+    private static final int STREAM_CHUNK_BYTES = 64 * 1024;
+
     @Autowired
     private ImgService imgService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @RequestMapping("/read")
     public ResponseVo read(ReadParam param) {
         log.info("read request, param: {}", param);
 
-        NoteBook result = imgService.read(param);
+        NoteBookVo result = imgService.read(param);
         return getSuccessResponse(result);
     }
 
+    @RequestMapping("/peekHeader")
+    public ResponseVo peekHeader(ReadParam param) {
+        log.info("peekHeader request, param: {}", param);
+
+        Header result = imgService.peekHeader(param);
+        return getSuccessResponse(result);
+    }
+
+    /**
+     * 范围读取，offset 与 length 按正文的 UTF-8 字节计算，分块保存的笔记本只解码涉及的块
+     */
+    @RequestMapping("/readRange")
+    public ResponseVo readRange(ReadRangeParam param) {
+        log.info("readRange request, param: {}", param);
+
+        ReadRangeVo result = imgService.readRange(param);
+        return getSuccessResponse(result);
+    }
+
+    /**
+     * 批量读取，请求体为 JSON：{ imagePaths: [...], headerOnly: false }
+     * 各图片并发解码，返回每个图片各自的结果或错误。
+     * 供脚本等外部调用方使用；客户端首页的列表信息来自图库索引 /library/query，不调用该接口。
+     */
+    @RequestMapping("/readBatch")
+    public ResponseVo readBatch(@RequestBody ReadBatchParam param) {
+        log.info("readBatch request, size: {}, headerOnly: {}",
+                param.getImagePaths() == null ? 0 : param.getImagePaths().size(), param.getHeaderOnly());
+
+        List<ReadBatchItemVo> result = imgService.readBatch(param);
+        return getSuccessResponse(result);
+    }
+
+    /**
+     * 流式读取，响应为 NDJSON：首行为 header，随后为若干 data 文本块，最后为 end
+     * Header 解析失败等错误在开始输出前按普通响应返回；输出过程中的错误以 error 行结束。
+     */
+    @RequestMapping("/readStream")
+    public ResponseEntity<StreamingResponseBody> readStream(ReadParam param) {
+        log.info("readStream request, param: {}", param);
+
+        NoteTextStream textStream = imgService.openTextStream(param);
+        StreamingResponseBody body = out -> {
+            try {
+                StreamLineVo headerLine = new StreamLineVo(StreamLineVo.TYPE_HEADER);
+                headerLine.setHeader(textStream.getHeader());
+                headerLine.setImg(ImgVo.of(textStream.getImg()));
+                headerLine.setDataLength(textStream.getDataLength());
+                writeLine(out, headerLine);
+
+                boolean isDataComplete = textStream.readText(STREAM_CHUNK_BYTES, text -> {
+                    StreamLineVo dataLine = new StreamLineVo(StreamLineVo.TYPE_DATA);
+                    dataLine.setText(text);
+                    writeLine(out, dataLine);
+                });
+
+                StreamLineVo endLine = new StreamLineVo(StreamLineVo.TYPE_END);
+                endLine.setIsDataComplete(isDataComplete);
+                writeLine(out, endLine);
+            } catch (BusinessException e) {
+                writeErrorLine(out, e.getCode(), e.getMessage());
+            } catch (IOException e) {
+                // 客户端断开时写入也会失败，只记录日志
+                log.warn("流式读取中断: {}", e.getMessage());
+                writeErrorLine(out, ResponseCodeEnum.CODE_411.getCode(), ResponseCodeEnum.CODE_411.getMsg());
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeLine(OutputStream out, StreamLineVo line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+        // 每行立即发出，客户端可以边解码边显示
+        out.flush();
+    }
+
+    private void writeErrorLine(OutputStream out, Integer code, String info) {
+        StreamLineVo errorLine = new StreamLineVo(StreamLineVo.TYPE_ERROR);
+        errorLine.setCode(code);
+        errorLine.setInfo(info);
+        try {
+            writeLine(out, errorLine);
+        } catch (IOException ignored) {
+        }
+    }
+
 }
@@ -3,7 +3,10 @@ package com.imgnote.IMGNoteServer.controller.img;
 import com.imgnote.IMGNoteServer.Entity.param.WriteParam;
 import com.imgnote.IMGNoteServer.Entity.vo.ResponseVo;
 import com.imgnote.IMGNoteServer.controller.common.BaseController;
+import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
 import com.imgnote.IMGNoteServer.service.ImgService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
@@ -11,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+
 @Slf4j
 @Validated
 @RestController
@@ -22,11 +27,28 @@ public class WriteController extends BaseController {
 
     @RequestMapping("/write")
     public ResponseVo write(@RequestBody WriteParam param) {
-        log.info(param.getContent().replace("\n", "\\n").replace("\r", "\\r"));
-        log.info("write request, param: {}", param);
+        log.info("write request, imagePath: {}, encryptionType: {}, contentLength: {}",
+                param.getImagePath(), param.getEncryptionType(), param.getContent() == null ? 0 : param.getContent().length());
         writeService.write(param);
 
         return getSuccessResponse(null);
     }
 
+    /**
+     * 流式写入：请求体为UTF-8正文（如 text/plain），其余参数放在查询字符串中
+     * 正文按块读取并写入像素，需要 Content-Length 确定数据区的位置。
+     */
+    @RequestMapping("/writeStream")
+    public ResponseVo writeStream(WriteParam param, HttpServletRequest request) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        log.info("writeStream request, imagePath: {}, encryptionType: {}, contentLength: {}",
+                param.getImagePath(), param.getEncryptionType(), contentLength);
+        if (contentLength < 0) {
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+        writeService.writeStream(param, request.getInputStream(), contentLength);
+
+        return getSuccessResponse(null);
+    }
+
 }
@@ -0,0 +1,37 @@
+package com.imgnote.IMGNoteServer.controller.library;
+
+import com.imgnote.IMGNoteServer.Entity.param.LibraryQueryParam;
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ResponseVo;
+import com.imgnote.IMGNoteServer.controller.common.BaseController;
+import com.imgnote.IMGNoteServer.service.LibraryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@Validated
+@RestController
+@RequestMapping("/library")
+public class LibraryController extends BaseController {
+
+    @Autowired
+    private LibraryService libraryService;
+
+    /**
+     * 查询图库索引：各笔记本图片的尺寸、容量、写入时间、加密方式与正文长度
+     * 首次查询时扫描整个目录，之后只重新解析有变化的图片。
+     */
+    @RequestMapping("/query")
+    public ResponseVo query(LibraryQueryParam param) {
+        log.info("library query request, param: {}", param);
+
+        List<LibraryItemVo> result = libraryService.query(param);
+        return getSuccessResponse(result);
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.imgnote.IMGNoteServer.converter;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.LsbCodec;
+import com.imgnote.IMGNoteServer.bean.Constants;
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Pixel;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
+import com.imgnote.IMGNoteServer.enums.EncodingEnum;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 二进制 Header 编解码
+ * 按固定偏移读写 ByteBuffer（大端），末尾为前面所有字节的 CRC32，校验失败时不再解码正文。
+ * <pre>
+ *  0  标识 short     2  版本 byte      3  加密方式 byte   4  编码 byte   5  压缩方式 byte   6  数据布局 byte
+ *  7  低 4 位为数据区每通道位数，高 4 位为末尾填充字节数
+ *  8  起点 x int    12  起点 y int    16  终点 x int    20  终点 y int
+ * 24  时间戳 long   32  正文MD5 16字节  48  校验码 16字节  64  CRC32 int
+ * </pre>
+ * 版本号从 2 开始，第 1 版为二进制串 Header，由 {@link HeaderParser} 解析。
+ */
+public class HeaderCodec {
+
+    private static final int RECOGNITION_OFFSET = 0;
+
+    private static final int VERSION_OFFSET = 2;
+
+    private static final int ENCRYPTION_TYPE_OFFSET = 3;
+
+    private static final int ENCODING_OFFSET = 4;
+
+    private static final int COMPRESSION_OFFSET = 5;
+
+    private static final int LAYOUT_OFFSET = 6;
+
+    private static final int BIT_PLANE_OFFSET = 7;
+
+    private static final int MAX_BITS_PER_CHANNEL = 4;
+
+    private static final int START_X_OFFSET = 8;
+
+    private static final int START_Y_OFFSET = 12;
+
+    private static final int END_X_OFFSET = 16;
+
+    private static final int END_Y_OFFSET = 20;
+
+    private static final int TIMESTAMP_OFFSET = 24;
+
+    private static final int MD5_OFFSET = 32;
+
+    private static final int VERIFY_CODE_OFFSET = 48;
+
+    private static final int CRC_OFFSET = 64;
+
+    private static final int MD5_BYTES = 16;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private HeaderCodec() {
+    }
+
+    /**
+     * 是否为二进制 Header，buffer 至少包含标识所在的 2 字节
+     */
+    public static boolean isBinary(ByteBuffer buffer) {
+        return buffer.getShort(RECOGNITION_OFFSET) == Constants.RECOGNITION;
+    }
+
+    /**
+     * 编码为当前版本的二进制 Header，MD5 与校验码为十六进制字符串
+     */
+    public static byte[] encode(Header header) {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.HEADER_BYTES);
+        CompressionEnum compression = header.getCompression() == null ? CompressionEnum.NONE : header.getCompression();
+        DataLayoutEnum layout = header.getLayout() == null ? DataLayoutEnum.CONTIGUOUS : header.getLayout();
+        buffer.putShort(RECOGNITION_OFFSET, Constants.RECOGNITION);
+        buffer.put(VERSION_OFFSET, (byte) Constants.HEADER_VERSION);
+        buffer.put(ENCRYPTION_TYPE_OFFSET, header.getEncryptionType().getNumber().byteValue());
+        buffer.put(ENCODING_OFFSET, header.getEncoding().getNumber().byteValue());
+        buffer.put(COMPRESSION_OFFSET, compression.getNumber().byteValue());
+        buffer.put(LAYOUT_OFFSET, layout.getNumber().byteValue());
+        int bitsPerChannel = header.getBitsPerChannel() == null ? 1 : header.getBitsPerChannel();
+        int paddingBytes = header.getPaddingBytes() == null ? 0 : header.getPaddingBytes();
+        buffer.put(BIT_PLANE_OFFSET, (byte) (paddingBytes << 4 | bitsPerChannel));
+        buffer.putInt(START_X_OFFSET, header.getStartPixel().getX());
+        buffer.putInt(START_Y_OFFSET, header.getStartPixel().getY());
+        buffer.putInt(END_X_OFFSET, header.getEndPixel().getX());
+        buffer.putInt(END_Y_OFFSET, header.getEndPixel().getY());
+        buffer.putLong(TIMESTAMP_OFFSET, header.getTime());
+        putHex(buffer, MD5_OFFSET, header.getDataMd5());
+        putHex(buffer, VERIFY_CODE_OFFSET, header.getVerifyCode());
+        buffer.putInt(CRC_OFFSET, crc(buffer));
+        return buffer.array();
+    }
+
+    /**
+     * 解码二进制 Header，不产生中间字符串
+     * @throws IllegalArgumentException CRC 不一致、版本或字段取值未知
+     */
+    public static void decode(ByteBuffer buffer, Header target) {
+        if (buffer.getInt(CRC_OFFSET) != crc(buffer)) {
+            throw new IllegalArgumentException("Header 校验失败");
+        }
+        int version = buffer.get(VERSION_OFFSET);
+        if (version != Constants.HEADER_VERSION) {
+            throw new IllegalArgumentException("不支持的 Header 版本: " + version);
+        }
+        EncodeTypeEnum encryptionType = EncodeTypeEnum.getByNumber((int) buffer.get(ENCRYPTION_TYPE_OFFSET));
+        EncodingEnum encoding = EncodingEnum.getByNumber((int) buffer.get(ENCODING_OFFSET));
+        CompressionEnum compression = CompressionEnum.getByNumber((int) buffer.get(COMPRESSION_OFFSET));
+        DataLayoutEnum layout = DataLayoutEnum.getByNumber((int) buffer.get(LAYOUT_OFFSET));
+        if (encryptionType == null || encoding == null || compression == null || layout == null) {
+            throw new IllegalArgumentException("Header 字段取值未知");
+        }
+        if (layout == DataLayoutEnum.CONTIGUOUS && compression != CompressionEnum.NONE) {
+            throw new IllegalArgumentException("连续布局的正文不压缩");
+        }
+        int bitPlane = buffer.get(BIT_PLANE_OFFSET) & 0xFF;
+        int bitsPerChannel = bitPlane & 0xF;
+        int paddingBytes = bitPlane >>> 4;
+        if (bitsPerChannel < 1 || bitsPerChannel > MAX_BITS_PER_CHANNEL || paddingBytes >= LsbCodec.unitBytes(bitsPerChannel)) {
+            throw new IllegalArgumentException("Header 每通道位数不合法");
+        }
+        target.setRecognitionShort(buffer.getShort(RECOGNITION_OFFSET));
+        target.setVersion(version);
+        target.setEncryptionType(encryptionType);
+        target.setEncoding(encoding);
+        target.setCompression(compression);
+        target.setLayout(layout);
+        target.setBitsPerChannel(bitsPerChannel);
+        target.setPaddingBytes(paddingBytes);
+        target.setStartPixel(new Pixel(buffer.getInt(START_X_OFFSET), buffer.getInt(START_Y_OFFSET)));
+        target.setEndPixel(new Pixel(buffer.getInt(END_X_OFFSET), buffer.getInt(END_Y_OFFSET)));
+        target.setTime(buffer.getLong(TIMESTAMP_OFFSET));
+        target.setDataMd5(getHex(buffer, MD5_OFFSET));
+        target.setVerifyCode(getHex(buffer, VERIFY_CODE_OFFSET));
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static void putHex(ByteBuffer buffer, int offset, String hex) {
+        for (int i = 0; i < MD5_BYTES; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            buffer.put(offset + i, (byte) (high << 4 | low));
+        }
+    }
+
+    private static String getHex(ByteBuffer buffer, int offset) {
+        char[] chars = new char[MD5_BYTES * 2];
+        for (int i = 0; i < MD5_BYTES; i++) {
+            int b = buffer.get(offset + i) & 0xFF;
+            chars[i * 2] = HEX_DIGITS[b >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[b & 0xF];
+        }
+        return new String(chars);
+    }
+
+}
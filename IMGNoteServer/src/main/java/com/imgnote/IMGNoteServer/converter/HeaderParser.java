@@ -4,6 +4,8 @@ import com.imgnote.IMGNoteServer.bean.Constants;
 import com.imgnote.IMGNoteServer.bean.Header;
 import com.imgnote.IMGNoteServer.bean.HeaderBits;
 import com.imgnote.IMGNoteServer.bean.Pixel;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
 import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
 import com.imgnote.IMGNoteServer.enums.EncodingEnum;
 import com.imgnote.IMGNoteServer.utils.StringTools;
@@ -48,6 +50,7 @@ public class HeaderParser {
 
     private void parseRecognition() {
         targetHeader.setRecognition(headerBits.getRecognition());
+        targetHeader.setVersion(1);
     }
 
     private void parseEncryptionType() {
@@ -91,6 +94,14 @@ public class HeaderParser {
         targetHeader.setVerifyCode(verifyCode);
     }
 
+    private void parseFormat() {
+        // 第一版 Header 的正文不压缩，数据区连续，每通道 1 位
+        targetHeader.setCompression(CompressionEnum.NONE);
+        targetHeader.setLayout(DataLayoutEnum.CONTIGUOUS);
+        targetHeader.setBitsPerChannel(1);
+        targetHeader.setPaddingBytes(0);
+    }
+
     public void parse() {
 
         parseHeaderBitStr();
@@ -111,6 +122,8 @@ public class HeaderParser {
 
         parseVerifyCode();
 
+        parseFormat();
+
     }
 
 }
@@ -0,0 +1,42 @@
+package com.imgnote.IMGNoteServer.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum CompressionEnum {
+
+    NONE("0000", "不压缩", 0),
+    DEFLATE("0001", "Deflate", 1),
+    ;
+
+    private final String code;
+
+    private final String type;
+
+    private final Integer number;
+
+    CompressionEnum(String code, String type, Integer number) {
+        this.code = code;
+        this.type = type;
+        this.number = number;
+    }
+
+    public static CompressionEnum getByCode(String code) {
+        for (CompressionEnum value : values()) {
+            if (value.code.equals(code)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    public static CompressionEnum getByNumber(Integer number) {
+        for (CompressionEnum value : values()) {
+            if (value.number.equals(number)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+}
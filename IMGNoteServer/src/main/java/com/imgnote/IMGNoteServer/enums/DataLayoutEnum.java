@@ -0,0 +1,30 @@
+package com.imgnote.IMGNoteServer.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum DataLayoutEnum {
+
+    CONTIGUOUS("连续", 0),
+    CHUNKED("分块，数据区末尾带块索引表", 1),
+    ;
+
+    private final String type;
+
+    private final Integer number;
+
+    DataLayoutEnum(String type, Integer number) {
+        this.type = type;
+        this.number = number;
+    }
+
+    public static DataLayoutEnum getByNumber(Integer number) {
+        for (DataLayoutEnum value : values()) {
+            if (value.number.equals(number)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+}
@@ -5,17 +5,20 @@ import lombok.Getter;
 @Getter
 public enum EncodingEnum {
 
-    UTF_8("00", "UTF-8"),
-    GBK("01", "GBK"),
+    UTF_8("00", "UTF-8", 0),
+    GBK("01", "GBK", 1),
     ;
 
     private final String code;
 
     private final String type;
 
-    EncodingEnum(String code, String type) {
+    private final Integer number;
+
+    EncodingEnum(String code, String type, Integer number) {
         this.code = code;
         this.type = type;
+        this.number = number;
     }
 
     public static EncodingEnum getByCode(String code) {
@@ -27,4 +30,13 @@ public enum EncodingEnum {
         return null;
     }
 
+    public static EncodingEnum getByNumber(Integer number) {
+        for (EncodingEnum value : values()) {
+            if (value.number.equals(number)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
 }
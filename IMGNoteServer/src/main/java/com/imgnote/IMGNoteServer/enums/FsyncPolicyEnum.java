@@ -0,0 +1,19 @@
+package com.imgnote.IMGNoteServer.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum FsyncPolicyEnum {
+
+    ALWAYS("每次保存都刷盘"),
+    BATCHED("定期批量刷盘"),
+    NEVER("不主动刷盘，由操作系统决定"),
+    ;
+
+    private final String type;
+
+    FsyncPolicyEnum(String type) {
+        this.type = type;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.imgnote.IMGNoteServer.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum PngFilterEnum {
+
+    NONE(0, "无过滤"),
+    SUB(1, "Sub"),
+    UP(2, "Up"),
+    AVERAGE(3, "Average"),
+    PAETH(4, "Paeth"),
+    ADAPTIVE(-1, "逐行自适应"),
+    ;
+
+    private final Integer code;
+
+    private final String type;
+
+    PngFilterEnum(Integer code, String type) {
+        this.code = code;
+        this.type = type;
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.imgnote.IMGNoteServer.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * 图片读写锁管理器
+ * 按规范化路径分条加锁：读共享，写独占。锁使用 StampedLock，可以在打开流的线程之外释放（如流式响应）。
+ * 同一图片的写入按提交顺序编号，取得写锁时如果已有更新的写入在排队，本次写入不再编码，
+ * 等待最新一次写入完成后返回它的结果，连续的自动保存只编码最后一次的内容。
+ */
+@Slf4j
+@Component
+public class ImageLockManager {
+
+    // 锁分条数，不同图片落在同一条上只会多一些等待
+    private static final int STRIPES = 64;
+
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+
+    // 规范化路径 -> 写入排队状态，没有排队的写入时移除
+    private final Map<String, WriteSlot> slots = new ConcurrentHashMap<>();
+
+    public ImageLockManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * 单个图片的写入排队状态，只在 slots.compute 中修改
+     */
+    private static class WriteSlot {
+
+        // 最后提交的写入序号
+        private long latestSeq;
+
+        // 最后完成的写入序号与结果
+        private long completedSeq;
+
+        private Throwable completedError;
+
+        // 尚未返回的写入数
+        private int pending;
+
+        // 被更新的写入取代、等待其结果的写入
+        private final List<Waiter> waiters = new ArrayList<>();
+    }
+
+    private static class Waiter {
+
+        private final long seq;
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Waiter(long seq) {
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * 在读锁内执行
+     */
+    public <T> T read(String imagePath, Supplier<T> action) {
+        StampedLock lock = lockOf(normalize(imagePath));
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 在写锁内执行，被更新的写入取代时不执行，返回最新一次写入的结果
+     */
+    public void write(String imagePath, Runnable action) {
+        String key = normalize(imagePath);
+        long seq = register(key);
+        StampedLock lock = lockOf(key);
+        CompletableFuture<Void> newerResult;
+        long stamp = lock.writeLock();
+        try {
+            newerResult = checkSuperseded(key, seq);
+            if (newerResult == null) {
+                Throwable error = null;
+                try {
+                    action.run();
+                } catch (RuntimeException | Error e) {
+                    error = e;
+                    throw e;
+                } finally {
+                    complete(key, seq, error);
+                }
+                return;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        log.info("写入已被更新的写入取代, 跳过编码: {}", key);
+        try {
+            newerResult.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private long register(String key) {
+        long[] seq = new long[1];
+        slots.compute(key, (k, slot) -> {
+            if (slot == null) {
+                slot = new WriteSlot();
+            }
+            seq[0] = ++slot.latestSeq;
+            slot.pending++;
+            return slot;
+        });
+        return seq[0];
+    }
+
+    /**
+     * 已持有写锁时检查是否有更新的写入
+     * @return 未被取代时返回 null，否则返回最新一次写入的结果
+     */
+    private CompletableFuture<Void> checkSuperseded(String key, long seq) {
+        List<CompletableFuture<Void>> result = new ArrayList<>(1);
+        slots.compute(key, (k, slot) -> {
+            if (seq == slot.latestSeq) {
+                return slot;
+            }
+            if (slot.completedSeq > seq) {
+                // 更新的写入已经完成
+                result.add(slot.completedError == null
+                        ? CompletableFuture.completedFuture(null)
+                        : CompletableFuture.failedFuture(slot.completedError));
+            } else {
+                Waiter waiter = new Waiter(seq);
+                slot.waiters.add(waiter);
+                result.add(waiter.result);
+            }
+            return --slot.pending == 0 ? null : slot;
+        });
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * 写入完成，唤醒被本次写入取代的写入
+     */
+    private void complete(String key, long seq, Throwable error) {
+        List<Waiter> done = new ArrayList<>();
+        slots.compute(key, (k, slot) -> {
+            slot.completedSeq = seq;
+            slot.completedError = error;
+            Iterator<Waiter> iterator = slot.waiters.iterator();
+            while (iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (waiter.seq < seq) {
+                    done.add(waiter);
+                    iterator.remove();
+                }
+            }
+            return --slot.pending == 0 ? null : slot;
+        });
+        for (Waiter waiter : done) {
+            if (error == null) {
+                waiter.result.complete(null);
+            } else {
+                waiter.result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private StampedLock lockOf(String key) {
+        return locks[(key.hashCode() & 0x7FFFFFFF) % STRIPES];
+    }
+
+    private static String normalize(String imagePath) {
+        return Path.of(imagePath).toAbsolutePath().normalize().toString();
+    }
+
+}
@@ -1,13 +1,57 @@
 package com.imgnote.IMGNoteServer.service;
 
+import com.imgnote.IMGNoteServer.Entity.param.ReadBatchParam;
 import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.Entity.param.ReadRangeParam;
+import com.imgnote.IMGNoteServer.ImgProcessor.NoteTextStream;
 import com.imgnote.IMGNoteServer.Entity.param.WriteParam;
-import com.imgnote.IMGNoteServer.bean.NoteBook;
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadBatchItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadRangeVo;
+import com.imgnote.IMGNoteServer.bean.Header;
+
+import java.io.InputStream;
+import java.util.List;
 
 public interface ImgService {
 
     void write(WriteParam param);
 
-    NoteBook read(ReadParam param);
+    /**
+     * 流式写入，正文从输入流按块读取，param 中的 content 不使用
+     * @param dataLength 正文字节数
+     */
+    void writeStream(WriteParam param, InputStream in, long dataLength);
+
+    NoteBookVo read(ReadParam param);
+
+    Header peekHeader(ReadParam param);
+
+    /**
+     * 预先解码并写入缓存，已缓存时只计算文件指纹
+     * @return 是否写入了内存缓存
+     */
+    boolean prewarm(ReadParam param);
+
+    /**
+     * 并发读取多个图片，结果与请求顺序一致，单个图片失败不影响其他图片
+     */
+    List<ReadBatchItemVo> readBatch(ReadBatchParam param);
+
+    /**
+     * 打开正文流，Header与数据区字节在返回前读取完成，正文由调用方按块读取
+     */
+    NoteTextStream openTextStream(ReadParam param);
+
+    /**
+     * 读取正文中的一段，分块布局只解码涉及的块，起止位置调整到字符边界
+     */
+    ReadRangeVo readRange(ReadRangeParam param);
+
+    /**
+     * 读取图库索引所需的信息：图片尺寸、容量、Header 与正文长度，只解码 Header 与块索引表
+     */
+    LibraryItemVo peekLibraryItem(ReadParam param);
 
 }
@@ -1,129 +1,512 @@
 package com.imgnote.IMGNoteServer.service.Impl;
 
+import com.imgnote.IMGNoteServer.Entity.param.ReadBatchParam;
 import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.Entity.param.ReadRangeParam;
 import com.imgnote.IMGNoteServer.Entity.param.WriteParam;
+import com.imgnote.IMGNoteServer.Entity.vo.ImgVo;
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadBatchItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.ReadRangeVo;
 import com.imgnote.IMGNoteServer.cache.CacheManager;
+import com.imgnote.IMGNoteServer.cache.CacheTaskExecutor;
+import com.imgnote.IMGNoteServer.cache.CachedNoteBook;
+import com.imgnote.IMGNoteServer.cache.DiskCacheManager;
+import com.imgnote.IMGNoteServer.cache.FileIdentityManager;
+import com.imgnote.IMGNoteServer.cache.LibraryIndexManager;
+import com.imgnote.IMGNoteServer.ImgProcessor.AtomicFileSaver;
+import com.imgnote.IMGNoteServer.ImgProcessor.ChunkTable;
 import com.imgnote.IMGNoteServer.ImgProcessor.ImgGen;
 import com.imgnote.IMGNoteServer.ImgProcessor.ImgParser;
+import com.imgnote.IMGNoteServer.ImgProcessor.NoteTextStream;
+import com.imgnote.IMGNoteServer.ImgProcessor.PayloadCodec;
 import com.imgnote.IMGNoteServer.bean.*;
-import com.imgnote.IMGNoteServer.converter.HeaderBuilder;
+import com.imgnote.IMGNoteServer.config.AppConfig;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
 import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
 import com.imgnote.IMGNoteServer.enums.EncodingEnum;
 import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
 import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import com.imgnote.IMGNoteServer.lock.ImageLockManager;
 import com.imgnote.IMGNoteServer.service.ImgService;
 import com.imgnote.IMGNoteServer.utils.StringTools;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
 @Slf4j
 @Service
 public class ImgServiceImpl implements ImgService {
 
+    // 单次范围读取的最大字节数
+    private static final int MAX_RANGE_BYTES = 16 * 1024 * 1024;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private DiskCacheManager diskCacheManager;
+
+    @Autowired
+    private FileIdentityManager fileIdentityManager;
+
+    @Autowired
+    private LibraryIndexManager libraryIndexManager;
+
+    @Autowired
+    private CacheTaskExecutor cacheTaskExecutor;
+
+    @Autowired
+    private ForkJoinPool stripePool;
+
+    @Autowired
+    private ExecutorService batchReadExecutor;
+
+    @Autowired
+    private ImageLockManager imageLockManager;
+
+    @Autowired
+    private AtomicFileSaver fileSaver;
+
     @Override
     public void write(WriteParam param) {
+        byte[] data = param.getContent().getBytes(StandardCharsets.UTF_8);
+        writeStream(param, new ByteArrayInputStream(data), data.length);
+    }
+
+    @Override
+    public void writeStream(WriteParam param, InputStream in, long dataLength) {
+        // 同一图片的写入串行执行，排队中的旧写入被新写入取代
+        imageLockManager.write(param.getImagePath(), () -> doWrite(param, in, dataLength));
+    }
+
+    private void doWrite(WriteParam param, InputStream in, long dataLength) {
         // 初始化生成对象
         String imagePath = param.getImagePath();
-        ImgGen imgGen = new ImgGen(imagePath, imagePath, Constants.FORMAT);
+        try (ImgGen imgGen = new ImgGen(imagePath, imagePath, Constants.FORMAT, appConfig.getPngEncodeConfig(), getStripePool(),
+                fileSaver, appConfig.getPayloadConfig())) {
 
-        String text = param.getContent();
-        String password = param.getPassword();
-        String dataBits = StringTools.stringToBytes(text);
-        String dataMd5 = StringTools.getMD5OfString(text);
-        String verifyCode = StringTools.getMD5OfString(password);
+            String password = param.getPassword();
+            String verifyCode = StringTools.getMD5HexOfString(password);
 
-        EncodeTypeEnum encodeType = EncodeTypeEnum.getByNumber(param.getEncryptionType());
-        if (encodeType == null) {
-            throw new BusinessException(ResponseCodeEnum.CODE_400);
+            EncodeTypeEnum encodeType = EncodeTypeEnum.getByNumber(param.getEncryptionType());
+            if (encodeType == null) {
+                throw new BusinessException(ResponseCodeEnum.CODE_400);
+            }
+
+            // 正文分块保存，末尾附加块索引表；压缩时逐块压缩后直接写入，按压缩后长度的上限生成起止点
+            CompressionEnum compression = appConfig.getPayloadCompression();
+            int chunkSize = appConfig.getPayloadConfig().getChunkSize();
+            InputStream payload = compression == CompressionEnum.DEFLATE
+                    ? PayloadCodec.compressedStream(in, dataLength, chunkSize)
+                    : PayloadCodec.chunkedStream(in, dataLength, chunkSize);
+            long payloadLength = PayloadCodec.storedBound(dataLength, compression, chunkSize);
+
+            // 生成起止点，新正文能放下时沿用原起点，只写入变化的部分
+            Header oldHeader = appConfig.isDeltaWriteEnabled() ? peekOldHeader(imagePath) : null;
+            if (oldHeader == null || !imgGen.reuseStart(oldHeader.getStartPixel(), payloadLength)) {
+                imgGen.genStartAndEnd(payloadLength);
+            }
+
+            // 写入正文，MD5在读取时计算，Header最后写入
+            String dataMd5 = imgGen.writeData(payload);
+
+            // 构建header
+            Header header = new Header();
+            header.setEncoding(EncodingEnum.UTF_8);
+            header.setEncryptionType(encodeType);
+            header.setStartPixel(imgGen.getStartPixel());
+            header.setEndPixel(imgGen.getEndPixel());
+            header.setTime(System.currentTimeMillis());
+            header.setDataMd5(dataMd5);
+            header.setVerifyCode(verifyCode);
+            header.setCompression(compression);
+            header.setLayout(DataLayoutEnum.CHUNKED);
+            header.setBitsPerChannel(imgGen.getBitsPerChannel());
+            header.setPaddingBytes(imgGen.getPaddingBytes());
+
+            imgGen.gen(header);
         }
 
-        // 生成起止点
-        imgGen.genStartAndEnd(dataBits);
+        // 在写锁内使文件指纹失效，取到的一定是写入前内容的MD5，不会与写入后的读取交错
+        String staleMd5 = fileIdentityManager.invalidate(imagePath);
+        // 记录写入后的文件属性，目录监听据此跳过本服务的写入，不重新计算MD5和预解码
+        fileIdentityManager.markWritten(imagePath);
+        // 文件系统的修改时间精度较低时写入前后的属性可能相同，直接使索引条目失效
+        libraryIndexManager.invalidate(imagePath);
+
+        // 清除缓存
+        clearExpiredCacheAsync(staleMd5);
+    }
 
-        // 构建header
+    /**
+     * 读取写入前的Header，图片中还没有笔记本时返回 null
+     */
+    private Header peekOldHeader(String imagePath) {
         Header header = new Header();
-        header.setRecognitionShort(Constants.RECOGNITION);
-        header.setEncoding(EncodingEnum.UTF_8);
-        header.setEncryptionType(encodeType);
-        header.setStartPixel(imgGen.getStartPixel());
-        header.setEndPixel(imgGen.getEndPixel());
-        header.setTime(System.currentTimeMillis());
-        header.setDataMd5(dataMd5);
-        header.setVerifyCode(verifyCode);
-
-        // 构建headerBits
-        HeaderBits headerBits = new HeaderBits();
-        HeaderBuilder builder = new HeaderBuilder(headerBits);
-        builder.build(header);
-
-        imgGen.gen(headerBits, header.getStartPixel());
+        try (ImgParser imgParser = openParser(imagePath, header, null)) {
+            checkRecognition(header, imgParser.getImg());
+            return header;
+        } catch (BusinessException e) {
+            return null;
+        }
+    }
 
-        // 清除缓存
-        clearExpiredCacheAsync(imagePath);
+    @Override
+    public NoteBookVo read(ReadParam param) {
+        return imageLockManager.read(param.getImagePath(), () -> doRead(param));
+    }
+
+    private NoteBookVo doRead(ReadParam param) {
+        // 查询缓存，文件指纹未变化时不重新计算MD5
+        String imageMd5 = fileIdentityManager.getContentMd5(param.getImagePath());
+        CacheManager.CacheEntry cachedEntry = cacheManager.get(imageMd5);
+        if (cachedEntry != null) {
+            log.info("命中缓存，图片MD5: {}", imageMd5);
+            return NoteBookVo.of(cachedEntry.getNoteBook());
+        }
+
+        // 查询持久化缓存，命中后回填内存缓存
+        CachedNoteBook diskNoteBook = diskCacheManager.get(imageMd5);
+        if (diskNoteBook != null) {
+            log.info("命中持久化缓存，图片MD5: {}", imageMd5);
+            cacheManager.put(imageMd5, diskNoteBook);
+            return NoteBookVo.of(diskNoteBook);
+        }
+
+        CachedNoteBook resultNoteBook = decode(param.getImagePath(), getStripePool());
+
+        // 添加缓存
+        addCacheAsync(imageMd5, param.getImagePath(), resultNoteBook);
+
+        return NoteBookVo.of(resultNoteBook);
+    }
+
+    /**
+     * 解码Header与全部正文
+     */
+    private CachedNoteBook decode(String imagePath, ForkJoinPool pool) {
+        Header resultHeader = new Header();
+        try (ImgParser imgParser = openParser(imagePath, resultHeader, pool)) {
+            // 获取图像基本信息
+            Img img = imgParser.getImg();
+
+            checkRecognition(resultHeader, img);
+
+            // 获取数据
+            byte[] resultData = imgParser.getData();
+
+            return CachedNoteBook.of(new NoteBook(resultHeader, resultData, img));
+        }
     }
 
     @Override
-    public NoteBook read(ReadParam param) {
-        // 查询缓存
-        String imageMd5 = StringTools.getFileMD5(param.getImagePath());
-        if (CacheManager.exists(imageMd5)) {
-            CacheManager.CacheEntry cachedEntry = CacheManager.get(imageMd5);
-            if (cachedEntry != null) {
-                log.info("命中缓存，图片MD5: {}", imageMd5);
-                return cachedEntry.getNoteBook();
+    public boolean prewarm(ReadParam param) {
+        return imageLockManager.read(param.getImagePath(), () -> {
+            String imageMd5 = fileIdentityManager.getContentMd5(param.getImagePath());
+            if (cacheManager.exists(imageMd5)) {
+                return false;
+            }
+            CachedNoteBook diskNoteBook = diskCacheManager.get(imageMd5);
+            if (diskNoteBook != null) {
+                cacheManager.put(imageMd5, diskNoteBook);
+                return true;
+            }
+            // 已在后台线程中，顺序解码并直接写入缓存
+            CachedNoteBook resultNoteBook = decode(param.getImagePath(), null);
+            cacheManager.put(imageMd5, resultNoteBook);
+            diskCacheManager.put(imageMd5, param.getImagePath(), resultNoteBook);
+            return true;
+        });
+    }
+
+    @Override
+    public Header peekHeader(ReadParam param) {
+        return imageLockManager.read(param.getImagePath(), () -> {
+            Header resultHeader = new Header();
+            // 只解码Header所在的行
+            try (ImgParser imgParser = openParser(param.getImagePath(), resultHeader, null)) {
+                checkRecognition(resultHeader, imgParser.getImg());
+                return resultHeader;
+            }
+        });
+    }
+
+    @Override
+    public List<ReadBatchItemVo> readBatch(ReadBatchParam param) {
+        List<String> imagePaths = param.getImagePaths();
+        if (imagePaths == null || imagePaths.size() > appConfig.getBatchMaxSize()) {
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+        boolean headerOnly = Boolean.TRUE.equals(param.getHeaderOnly());
+
+        // 重复的路径只读取一次
+        Map<String, CompletableFuture<NoteBookVo>> futures = new LinkedHashMap<>();
+        for (String imagePath : imagePaths) {
+            futures.computeIfAbsent(imagePath, path -> CompletableFuture.supplyAsync(() -> {
+                ReadParam readParam = new ReadParam();
+                readParam.setImagePath(path);
+                return headerOnly ? peekNoteBook(readParam) : read(readParam);
+            }, batchReadExecutor));
+        }
+
+        List<ReadBatchItemVo> results = new ArrayList<>(imagePaths.size());
+        for (String imagePath : imagePaths) {
+            ReadBatchItemVo item = new ReadBatchItemVo(imagePath);
+            try {
+                item.setData(futures.get(imagePath).join());
+                item.setCode(ResponseCodeEnum.CODE_200.getCode());
+                item.setInfo(ResponseCodeEnum.CODE_200.getMsg());
+            } catch (CompletionException e) {
+                setBatchError(item, e.getCause());
+            }
+            results.add(item);
+        }
+        return results;
+    }
+
+    /**
+     * 只解析Header和图片信息
+     */
+    private NoteBookVo peekNoteBook(ReadParam param) {
+        return imageLockManager.read(param.getImagePath(), () -> {
+            Header resultHeader = new Header();
+            try (ImgParser imgParser = openParser(param.getImagePath(), resultHeader, null)) {
+                checkRecognition(resultHeader, imgParser.getImg());
+                return NoteBookVo.of(resultHeader, imgParser.getImg());
+            }
+        });
+    }
+
+    private void setBatchError(ReadBatchItemVo item, Throwable e) {
+        if (e instanceof BusinessException) {
+            BusinessException businessException = (BusinessException) e;
+            item.setCode(businessException.getCode());
+            item.setInfo(businessException.getMessage());
+            // Header标识错误时携带图片信息
+            if (businessException.getData() instanceof NoteBookVo) {
+                item.setData((NoteBookVo) businessException.getData());
             }
+        } else {
+            log.warn("批量读取失败, 图片: {}, 错误信息: {}", item.getImagePath(), e.getMessage());
+            item.setCode(ResponseCodeEnum.CODE_600.getCode());
+            item.setInfo(ResponseCodeEnum.CODE_600.getMsg());
+        }
+    }
+
+    @Override
+    public NoteTextStream openTextStream(ReadParam param) {
+        // 数据区字节在读锁内取出，输出时已释放读锁，慢速客户端不会阻塞图片的写入
+        return imageLockManager.read(param.getImagePath(), () -> doOpenTextStream(param));
+    }
+
+    private NoteTextStream doOpenTextStream(ReadParam param) {
+        String imagePath = param.getImagePath();
+        // 命中缓存时直接切分已解码的文本
+        String imageMd5 = fileIdentityManager.getContentMd5(imagePath);
+        CacheManager.CacheEntry cachedEntry = cacheManager.get(imageMd5);
+        if (cachedEntry != null) {
+            return NoteTextStream.of(cachedEntry.getNoteBook());
+        }
+        CachedNoteBook diskNoteBook = diskCacheManager.get(imageMd5);
+        if (diskNoteBook != null) {
+            return NoteTextStream.of(diskNoteBook);
         }
 
+        // 只取出数据区的原始字节，正文在输出时逐块解压解码，不经过缓存
         Header resultHeader = new Header();
-        ImgParser imgParser = new ImgParser(param.getImagePath(), resultHeader);
+        try (ImgParser imgParser = openParser(imagePath, resultHeader, null)) {
+            checkRecognition(resultHeader, imgParser.getImg());
+            return NoteTextStream.of(imgParser, resultHeader);
+        }
+    }
+
+    @Override
+    public ReadRangeVo readRange(ReadRangeParam param) {
+        if (param.getOffset() == null || param.getOffset() < 0 || param.getLength() == null
+                || param.getLength() <= 0 || param.getLength() > MAX_RANGE_BYTES) {
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+        return imageLockManager.read(param.getImagePath(), () -> doReadRange(param));
+    }
 
-        // 获取图像基本信息
-        Img img = imgParser.getImg();
+    private ReadRangeVo doReadRange(ReadRangeParam param) {
+        Header header = new Header();
+        try (ImgParser imgParser = openParser(param.getImagePath(), header, null)) {
+            checkRecognition(header, imgParser.getImg());
+
+            // 连续布局没有块索引，读取全部正文后截取，可命中缓存
+            if (header.getLayout() != DataLayoutEnum.CHUNKED) {
+                ReadParam readParam = new ReadParam();
+                readParam.setImagePath(param.getImagePath());
+                NoteBookVo noteBook = doRead(readParam);
+                byte[] data = noteBook.getData().getBytes(StandardCharsets.UTF_8);
+                return sliceRange(data, 0, Math.min(param.getOffset(), data.length), param.getLength(),
+                        Boolean.TRUE.equals(noteBook.getIsDataComplete()));
+            }
 
-        short recognition = resultHeader.getRecognitionShort();
-        if (recognition != Constants.RECOGNITION) {
-            log.warn("Result header recognition:  {}", StringTools.bytesToString(resultHeader.getRecognition()));
-            throw new BusinessException(ResponseCodeEnum.CODE_406, new NoteBook(img));
+            ChunkTable table = imgParser.readChunkTable();
+            long totalLength = table.getRawLength();
+            long start = Math.min(param.getOffset(), totalLength);
+            // 多读 3 字节，用于把终点调整到字符边界
+            long end = Math.min(totalLength, start + param.getLength() + 3);
+            if (start >= end) {
+                ReadRangeVo result = sliceRange(new byte[0], start, start, 0, true);
+                result.setTotalLength(totalLength);
+                return result;
+            }
+
+            // 涉及的块在数据区中相邻，一次读出
+            int chunkSize = table.getChunkSize();
+            int firstChunk = (int) (start / chunkSize);
+            int lastChunk = (int) ((end - 1) / chunkSize);
+            int storedFrom = table.getOffset(firstChunk);
+            int storedTo = table.getOffset(lastChunk) + table.getLength(lastChunk);
+            byte[] stored = imgParser.readStoredBytes(storedFrom, storedTo - storedFrom);
+
+            byte[] data = new byte[(lastChunk - firstChunk) * chunkSize + table.getRawLength(lastChunk)];
+            boolean isDataComplete = true;
+            for (int chunk = firstChunk; chunk <= lastChunk; chunk++) {
+                int offset = table.getOffset(chunk) - storedFrom;
+                isDataComplete &= PayloadCodec.checkChunk(table, chunk, stored, offset);
+                byte[] raw = PayloadCodec.decodeChunk(header.getCompression(), stored, offset,
+                        table.getLength(chunk), table.getRawLength(chunk));
+                isDataComplete &= raw.length == table.getRawLength(chunk);
+                System.arraycopy(raw, 0, data, (chunk - firstChunk) * chunkSize, raw.length);
+            }
+            ReadRangeVo result = sliceRange(data, (long) firstChunk * chunkSize, start, param.getLength(), isDataComplete);
+            result.setTotalLength(totalLength);
+            return result;
         }
+    }
 
-        // 获取二进制数据
-        String resultDataBits = imgParser.getDataBits();
+    @Override
+    public LibraryItemVo peekLibraryItem(ReadParam param) {
+        return imageLockManager.read(param.getImagePath(), () -> {
+            Header header = new Header();
+            try (ImgParser imgParser = openParser(param.getImagePath(), header, null)) {
+                checkRecognition(header, imgParser.getImg());
 
-        // 获取明文数据
-        String resultText = StringTools.bytesToString(resultDataBits);
+                LibraryItemVo item = new LibraryItemVo();
+                item.setCode(ResponseCodeEnum.CODE_200.getCode());
+                item.setInfo(ResponseCodeEnum.CODE_200.getMsg());
+                item.applyImg(ImgVo.of(imgParser.getImg()));
+                item.setTime(header.getTime());
+                item.setEncryptionType(header.getEncryptionType() == null ? null : header.getEncryptionType().getNumber());
+                item.setEncrypted(header.getEncryptionType() != null && header.getEncryptionType() != EncodeTypeEnum.NONE);
+                item.setStoredLength((long) imgParser.getDataLength());
+                // 分块布局的正文长度记录在索引表中；连续布局的正文不压缩
+                if (header.getLayout() == DataLayoutEnum.CHUNKED) {
+                    try {
+                        item.setDataLength(imgParser.readChunkTable().getRawLength());
+                    } catch (BusinessException e) {
+                        item.setCode(e.getCode());
+                        item.setInfo(e.getMessage());
+                    }
+                } else {
+                    item.setDataLength(item.getStoredLength());
+                }
+                return item;
+            }
+        });
+    }
 
-        NoteBook resultNoteBook = new NoteBook(resultHeader, resultText, img);
+    /**
+     * 截取正文中从 offset 开始的 length 字节，起点跳过不完整字符的后续字节，终点退到字符开头；
+     * 范围内没有完整字符时返回起点处的一个字符
+     * @param data 正文中从 dataOffset 开始的字节，需比截取的终点多 3 字节
+     */
+    private static ReadRangeVo sliceRange(byte[] data, long dataOffset, long offset, int length, boolean isDataComplete) {
+        int from = (int) (offset - dataOffset);
+        while (from < data.length && isUtf8Continuation(data[from])) {
+            from++;
+        }
+        int to = (int) Math.max(from, Math.min(data.length, offset + length - dataOffset));
+        if (to == from && from < data.length) {
+            to = from + 1;
+        } else if (to < data.length && isUtf8Continuation(data[to])) {
+            int back = to;
+            while (back > from && isUtf8Continuation(data[back])) {
+                back--;
+            }
+            to = back > from ? back : from + 1;
+        }
+        while (to < data.length && isUtf8Continuation(data[to])) {
+            to++;
+        }
 
-        // 添加缓存
-        addCacheAsync(imageMd5, resultNoteBook);
+        ReadRangeVo result = new ReadRangeVo();
+        result.setOffset(dataOffset + from);
+        result.setLength(to - from);
+        result.setTotalLength(dataOffset + data.length);
+        result.setText(new String(data, from, to - from, StandardCharsets.UTF_8));
+        result.setIsDataComplete(isDataComplete);
+        return result;
+    }
 
-        return resultNoteBook;
+    private static boolean isUtf8Continuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * 打开图片并解析Header，图片容量按写入时的每通道位数计算
+     */
+    private ImgParser openParser(String imagePath, Header header, ForkJoinPool pool) {
+        return new ImgParser(imagePath, header, pool, appConfig.getPayloadConfig());
+    }
+
+    /**
+     * 未启用并行时返回 null，编解码在当前线程顺序执行
+     */
+    private ForkJoinPool getStripePool() {
+        return appConfig.isParallelEnabled() ? stripePool : null;
+    }
+
+    private void checkRecognition(Header header, Img img) {
+        short recognition = header.getRecognitionShort();
+        if (recognition != Constants.RECOGNITION && recognition != Constants.RECOGNITION_V1) {
+            log.warn("Result header recognition:  {}", StringTools.bytesToString(header.getRecognition()));
+            throw new BusinessException(ResponseCodeEnum.CODE_406, NoteBookVo.of(img));
+        }
     }
 
     /**
      * 异步写入缓存
      */
-    private void addCacheAsync(String imageMd5, NoteBook resultNoteBook) {
-        new Thread(() -> {
-            try {
-                CacheManager.put(imageMd5 ,resultNoteBook);
-            } catch (Exception e) {
-                log.warn("异步写入缓存时发生异常: {}", e.getMessage());
-            }
-        }, "Cache-Add-Thread").start();
+    private void addCacheAsync(String imageMd5, String imagePath, CachedNoteBook resultNoteBook) {
+        cacheTaskExecutor.execute("Cache-Add", () -> {
+            cacheManager.put(imageMd5, resultNoteBook);
+            diskCacheManager.put(imageMd5, imagePath, resultNoteBook);
+        });
     }
 
     /**
      * 异步清除过期缓存
      */
-    private void clearExpiredCacheAsync(String imagePath) {
-        new Thread(() -> {
-            try {
-                String imageMd5 = StringTools.getFileMD5(imagePath);
-                CacheManager.remove(imageMd5);
-            } catch (Exception e) {
-                log.warn("异步清理缓存时发生异常: {}", e.getMessage());
-            }
-        }, "Cache-Cleanup-Thread").start();
+    private void clearExpiredCacheAsync(String staleMd5) {
+        if (staleMd5 == null) {
+            return;
+        }
+        cacheTaskExecutor.execute("Cache-Cleanup", () -> {
+            cacheManager.remove(staleMd5);
+            diskCacheManager.remove(staleMd5);
+        });
     }
 }
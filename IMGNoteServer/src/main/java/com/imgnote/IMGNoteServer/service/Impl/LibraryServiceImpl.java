@@ -0,0 +1,207 @@
+package com.imgnote.IMGNoteServer.service.Impl;
+
+import com.imgnote.IMGNoteServer.Entity.param.LibraryQueryParam;
+import com.imgnote.IMGNoteServer.Entity.param.ReadParam;
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+import com.imgnote.IMGNoteServer.Entity.vo.NoteBookVo;
+import com.imgnote.IMGNoteServer.cache.CacheFileWatcher;
+import com.imgnote.IMGNoteServer.cache.DiskCacheManager;
+import com.imgnote.IMGNoteServer.cache.LibraryIndexManager;
+import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import com.imgnote.IMGNoteServer.service.ImgService;
+import com.imgnote.IMGNoteServer.service.LibraryService;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class LibraryServiceImpl implements LibraryService {
+
+    // 与客户端一致，只有包含该文件的目录是笔记本
+    private static final String META_FILE = "meta.json";
+
+    @Autowired
+    private ImgService imgService;
+
+    @Autowired
+    private LibraryIndexManager libraryIndexManager;
+
+    @Autowired
+    private CacheFileWatcher cacheFileWatcher;
+
+    @Autowired
+    private DiskCacheManager diskCacheManager;
+
+    @Autowired
+    private ExecutorService batchReadExecutor;
+
+    /**
+     * 扫描到的笔记本图片
+     */
+    private static class NoteImage {
+
+        private final String categoryId;
+
+        private final String noteId;
+
+        private final Path path;
+
+        private final BasicFileAttributes attributes;
+
+        NoteImage(String categoryId, String noteId, Path path, BasicFileAttributes attributes) {
+            this.categoryId = categoryId;
+            this.noteId = noteId;
+            this.path = path;
+            this.attributes = attributes;
+        }
+    }
+
+    @Override
+    public List<LibraryItemVo> query(LibraryQueryParam param) {
+        if (param.getRootPath() == null || param.getRootPath().isBlank()) {
+            throw new BusinessException(ResponseCodeEnum.CODE_400);
+        }
+        Path root = Path.of(param.getRootPath()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new BusinessException(ResponseCodeEnum.CODE_404);
+        }
+        long begin = System.currentTimeMillis();
+        // 客户端首次查询时开始监听该目录，之后外部修改的图片会使缓存失效并在后台预解码；持久化缓存保存在该目录下
+        cacheFileWatcher.watch(root);
+        diskCacheManager.open(root);
+
+        // 只读取文件属性，未变化的图片直接使用索引条目，其余的并发解析
+        List<NoteImage> images = scan(root, param.getCategoryId());
+        List<LibraryItemVo> results = new ArrayList<>(images.size());
+        List<CompletableFuture<LibraryItemVo>> futures = new ArrayList<>();
+        for (NoteImage image : images) {
+            LibraryItemVo item = libraryIndexManager.get(image.path, image.attributes);
+            if (item != null) {
+                results.add(item);
+            } else {
+                futures.add(CompletableFuture.supplyAsync(() -> index(image), batchReadExecutor));
+            }
+        }
+        for (CompletableFuture<LibraryItemVo> future : futures) {
+            results.add(future.join());
+        }
+
+        // 扫描整个目录时清除已删除图片的条目
+        if (param.getCategoryId() == null) {
+            Set<String> paths = new HashSet<>();
+            for (NoteImage image : images) {
+                paths.add(image.path.toString());
+            }
+            libraryIndexManager.retain(root, paths);
+        }
+
+        results.sort(Comparator.comparingLong(LibraryItemVo::getLastModified).reversed());
+        log.info("图库索引查询完成, 共 {} 个, 重新解析 {} 个, 耗时 {} ms",
+                results.size(), futures.size(), System.currentTimeMillis() - begin);
+        return results;
+    }
+
+    /**
+     * 解析图片并记录索引条目，失败时记录错误码，图片未变化前不再重复解析
+     */
+    private LibraryItemVo index(NoteImage image) {
+        LibraryItemVo item;
+        try {
+            ReadParam readParam = new ReadParam();
+            readParam.setImagePath(image.path.toString());
+            item = imgService.peekLibraryItem(readParam);
+        } catch (BusinessException e) {
+            item = new LibraryItemVo();
+            item.setCode(e.getCode());
+            item.setInfo(e.getMessage());
+            // Header标识错误时携带图片信息
+            if (e.getData() instanceof NoteBookVo) {
+                item.applyImg(((NoteBookVo) e.getData()).getImg());
+            }
+        } catch (RuntimeException e) {
+            log.warn("图库索引解析失败, 图片: {}, 错误信息: {}", image.path, e.getMessage());
+            item = new LibraryItemVo();
+            item.setCode(ResponseCodeEnum.CODE_600.getCode());
+            item.setInfo(ResponseCodeEnum.CODE_600.getMsg());
+        }
+        item.setImagePath(image.path.toString());
+        item.setCategoryId(image.categoryId);
+        item.setNoteId(image.noteId);
+        item.setFileSize(image.attributes.size());
+        item.setLastModified(image.attributes.lastModifiedTime().to(TimeUnit.MILLISECONDS));
+        libraryIndexManager.put(image.path, image.attributes, item);
+        return item;
+    }
+
+    /**
+     * 扫描 根目录/分类/笔记本 下的图片，每个笔记本取文件名最小的图片
+     */
+    private List<NoteImage> scan(Path root, String categoryId) {
+        List<NoteImage> images = new ArrayList<>();
+        for (Path category : listDirectories(root)) {
+            String categoryName = category.getFileName().toString();
+            if (categoryId != null && !categoryId.equals(categoryName)) {
+                continue;
+            }
+            for (Path note : listDirectories(category)) {
+                if (!Files.isRegularFile(note.resolve(META_FILE))) {
+                    continue;
+                }
+                Path image = findImage(note);
+                if (image == null) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(image, BasicFileAttributes.class);
+                    images.add(new NoteImage(categoryName, note.getFileName().toString(), image, attributes));
+                } catch (IOException e) {
+                    log.warn("读取文件属性失败: {}", image);
+                }
+            }
+        }
+        return images;
+    }
+
+    private static List<Path> listDirectories(Path dir) {
+        List<Path> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            stream.forEach(dirs::add);
+        } catch (IOException e) {
+            log.warn("读取目录失败: {}", dir);
+        }
+        return dirs;
+    }
+
+    private static Path findImage(Path note) {
+        Path image = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(note)) {
+            for (Path file : stream) {
+                if (ImgTools.isImageFile(file) && Files.isRegularFile(file)
+                        && (image == null || file.getFileName().compareTo(image.getFileName()) < 0)) {
+                    image = file;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("读取目录失败: {}", note);
+        }
+        return image;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.imgnote.IMGNoteServer.service;
+
+import com.imgnote.IMGNoteServer.Entity.param.LibraryQueryParam;
+import com.imgnote.IMGNoteServer.Entity.vo.LibraryItemVo;
+
+import java.util.List;
+
+public interface LibraryService {
+
+    /**
+     * 查询图库索引，按文件修改时间倒序
+     * 每次查询只读取文件属性，属性变化或新增的图片才重新解析 Header。
+     */
+    List<LibraryItemVo> query(LibraryQueryParam param);
+
+}
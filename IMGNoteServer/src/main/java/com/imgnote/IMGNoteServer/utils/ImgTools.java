@@ -1,62 +1,246 @@
 package com.imgnote.IMGNoteServer.utils;
 
+import com.imgnote.IMGNoteServer.ImgProcessor.AtomicFileSaver;
+import com.imgnote.IMGNoteServer.ImgProcessor.LsbCodec;
+import com.imgnote.IMGNoteServer.ImgProcessor.PayloadCodec;
 import com.imgnote.IMGNoteServer.bean.Constants;
 import com.imgnote.IMGNoteServer.bean.Img;
+import com.imgnote.IMGNoteServer.bean.PayloadConfig;
 import com.imgnote.IMGNoteServer.enums.ResponseCodeEnum;
 import com.imgnote.IMGNoteServer.exceptions.BusinessException;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
 
 public class ImgTools {
 
+    // 估算有效容量时采用的最大压缩率
+    private static final double MAX_ESTIMATED_COMPRESSION_RATIO = 4.0;
+
+    // 笔记本图片的扩展名，与客户端导入时接受的格式一致
+    private static final Set<String> IMAGE_EXT = Set.of(".png", ".jpg", ".jpeg", ".gif", ".bmp", ".webp");
+
+    /**
+     * 按扩展名判断是否为笔记本图片，不检查文件是否存在
+     */
+    public static boolean isImageFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXT.contains(name.substring(dot).toLowerCase(Locale.ROOT));
+    }
+
     public static Img getBasicImg(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        return new Img(width, height, getMaxContentLen(width, height), null);
+        return getImg(image.getWidth(), image.getHeight(), new PayloadConfig());
     }
 
-    public static long getMaxContentLen(int imgWidth, int imgHeight) {
+    /**
+     * 图片尺寸与按写入配置计算的容量
+     */
+    public static Img getImg(int imgWidth, int imgHeight, PayloadConfig config) {
+        return new Img(imgWidth, imgHeight, getMaxContentLen(imgWidth, imgHeight, config),
+                getMaxStoredLen(imgWidth, imgHeight, config.getBitsPerChannel()));
+    }
 
-        long totalPixels = (long) imgWidth * imgHeight;
-        long totalBits = (totalPixels - 1) * 4;
-        long headerBits = (Constants.HEADER_LENGTH + 3) / 4 * 4;
-        long availableBits = totalBits - headerBits;
+    public static long getMaxContentLen(int imgWidth, int imgHeight) {
+        return getMaxContentLen(imgWidth, imgHeight, new PayloadConfig());
+    }
 
-        return availableBits / 8;
+    /**
+     * 一定能写入的正文字节数：数据区容量扣除块索引表，压缩时再扣除无法压缩的数据的最大开销
+     */
+    public static long getMaxContentLen(int imgWidth, int imgHeight, PayloadConfig config) {
+        long maxStoredLen = getMaxStoredLen(imgWidth, imgHeight, config.getBitsPerChannel());
+        return PayloadCodec.maxContentLength(maxStoredLen, config.getCompression(), config.getChunkSize());
     }
 
     /**
-     * 将指定坐标的像素点保存为图片
+     * 数据区可保存的字节数：Header 固定按每通道 1 位占用开头的像素，其余像素每通道承载 bitsPerChannel 位
      */
-    public static void saveImg(Img img, String outputPath, String format) {
-        int imgWidth = img.getWidth();
-        int imgHeight = img.getHeight();
+    public static long getMaxStoredLen(int imgWidth, int imgHeight, int bitsPerChannel) {
 
-        BufferedImage image = new BufferedImage(imgWidth, imgHeight, BufferedImage.TYPE_INT_ARGB);
+        long totalPixels = (long) imgWidth * imgHeight;
+        long headerPixels = LsbCodec.pixelsForBytes(Constants.HEADER_BYTES);
+        long availablePixels = Math.max(0, totalPixels - 1 - headerPixels);
 
-        // 初始化背景色
-        Color bgColor = Color.WHITE;
-        for (int y = 0; y < imgHeight; y++) {
-            for (int x = 0; x < imgWidth; x++) {
-                image.setRGB(x, y, bgColor.getRGB());
-            }
+        return LsbCodec.bytesForPixels(availablePixels, bitsPerChannel);
+    }
+
+    /**
+     * 按正文的压缩率估算可写入的正文字节数，不低于一定能写入的字节数
+     * 只是估算：新正文的压缩率不同时可能写不下，不能作为写入上限。
+     * @param dataLength 正文字节数
+     * @param storedLength 正文在数据区中占用的字节数
+     */
+    public static long getEstimatedContentLen(long maxContentLen, long maxStoredLen, long dataLength, long storedLength) {
+        if (storedLength <= 0 || dataLength <= storedLength) {
+            return maxContentLen;
         }
+        // 重复内容多的正文压缩率很高，按其估算会远超实际能写入的普通文本
+        double ratio = Math.min(MAX_ESTIMATED_COMPRESSION_RATIO, (double) dataLength / storedLength);
+        return Math.max(maxContentLen, (long) (maxStoredLen * ratio));
+    }
 
-        image.setRGB(0, 0, imgWidth, imgHeight, img.getPixels(), 0, imgWidth);
+    /**
+     * 将图片保存到指定路径，不主动刷盘
+     */
+    public static void saveImg(BufferedImage image, String outputPath, String format) {
+        saveImg(image, outputPath, format, AtomicFileSaver.NO_SYNC);
+    }
 
-        // 保存到指定路径
+    /**
+     * 将图片保存到指定路径，先写入临时文件再替换，中途失败不会损坏原文件
+     */
+    public static void saveImg(BufferedImage image, String outputPath, String format, AtomicFileSaver saver) {
         try {
-            File outputFile = new File(outputPath);
-            ImageIO.write(image, format, outputFile);
+            saver.save(outputPath, out -> {
+                // 不关闭输出流，通道由 saver 关闭
+                if (!ImageIO.write(image, format, Channels.newOutputStream(out))) {
+                    throw new IOException("不支持的图片格式: " + format);
+                }
+            });
         } catch (IOException e) {
             throw new BusinessException(ResponseCodeEnum.CODE_412);
         }
     }
 
+    /**
+     * 按线性下标（y * width + x）批量读取 ARGB 像素
+     * @param fromIndex 起始像素下标
+     * @param target 目标数组
+     * @param targetOffset 目标数组起始下标
+     * @param count 像素数量
+     */
+    public static void readPixels(BufferedImage image, int fromIndex, int[] target, int targetOffset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (isDirectRaster(image)) {
+            DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_ARGB -> {
+                    int[] data = ((DataBufferInt) dataBuffer).getData();
+                    System.arraycopy(data, fromIndex, target, targetOffset, count);
+                    return;
+                }
+                case BufferedImage.TYPE_INT_RGB -> {
+                    int[] data = ((DataBufferInt) dataBuffer).getData();
+                    for (int i = 0; i < count; i++) {
+                        target[targetOffset + i] = data[fromIndex + i] | 0xFF000000;
+                    }
+                    return;
+                }
+                case BufferedImage.TYPE_4BYTE_ABGR -> {
+                    byte[] data = ((DataBufferByte) dataBuffer).getData();
+                    for (int i = 0, p = fromIndex * 4; i < count; i++, p += 4) {
+                        target[targetOffset + i] = (data[p] & 0xFF) << 24
+                                | (data[p + 3] & 0xFF) << 16
+                                | (data[p + 2] & 0xFF) << 8
+                                | (data[p + 1] & 0xFF);
+                    }
+                    return;
+                }
+                case BufferedImage.TYPE_3BYTE_BGR -> {
+                    byte[] data = ((DataBufferByte) dataBuffer).getData();
+                    for (int i = 0, p = fromIndex * 3; i < count; i++, p += 3) {
+                        target[targetOffset + i] = 0xFF000000
+                                | (data[p + 2] & 0xFF) << 16
+                                | (data[p + 1] & 0xFF) << 8
+                                | (data[p] & 0xFF);
+                    }
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
+
+        // 灰度、索引色等类型按行批量转换
+        int width = image.getWidth();
+        int index = fromIndex;
+        int end = fromIndex + count;
+        int offset = targetOffset;
+        while (index < end) {
+            int x = index % width;
+            int y = index / width;
+            int len = Math.min(width - x, end - index);
+            image.getRGB(x, y, len, 1, target, offset, len);
+            index += len;
+            offset += len;
+        }
+    }
+
+    /**
+     * 按线性下标（y * width + x）批量写入 ARGB 像素
+     * @param fromIndex 起始像素下标
+     * @param source 源数组
+     * @param sourceOffset 源数组起始下标
+     * @param count 像素数量
+     */
+    public static void writePixels(BufferedImage image, int fromIndex, int[] source, int sourceOffset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (isDirectRaster(image)) {
+            DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_ARGB -> {
+                    int[] data = ((DataBufferInt) dataBuffer).getData();
+                    System.arraycopy(source, sourceOffset, data, fromIndex, count);
+                    return;
+                }
+                case BufferedImage.TYPE_4BYTE_ABGR -> {
+                    byte[] data = ((DataBufferByte) dataBuffer).getData();
+                    for (int i = 0, p = fromIndex * 4; i < count; i++, p += 4) {
+                        int pixel = source[sourceOffset + i];
+                        data[p] = (byte) (pixel >>> 24);
+                        data[p + 1] = (byte) pixel;
+                        data[p + 2] = (byte) (pixel >> 8);
+                        data[p + 3] = (byte) (pixel >> 16);
+                    }
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
+
+        int width = image.getWidth();
+        int index = fromIndex;
+        int end = fromIndex + count;
+        int offset = sourceOffset;
+        while (index < end) {
+            int x = index % width;
+            int y = index / width;
+            int len = Math.min(width - x, end - index);
+            image.setRGB(x, y, len, 1, source, offset, len);
+            index += len;
+            offset += len;
+        }
+    }
+
+    /**
+     * 判断图片的数据缓冲区是否为紧凑排列的单一数组，可直接按下标访问
+     */
+    private static boolean isDirectRaster(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        return raster.getParent() == null
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getSampleModel().getWidth() == image.getWidth()
+                && dataBuffer.getNumBanks() == 1
+                && dataBuffer.getOffset() == 0;
+    }
+
     /**
      * 提取从指定范围像素的位置和颜色
      * @param startX 起始X坐标
@@ -67,16 +251,9 @@ public class ImgTools {
     public static int[] getPixelRangeInfo(BufferedImage image, int startX, int startY, int endX, int endY) {
 
         int[] pixelList = new int[(endY - startY - 1) * image.getWidth() + endX + 1 + image.getWidth() - startX];
-        int index = 0;
-        for (int y = startY; y <= endY; y++) {
-            int maxX = y == endY ? endX : image.getWidth() - 1;
-            int minX = y == startY ? startX : 0;
-            for (int x = minX; x <= maxX; x++, index++) {
-                pixelList[index] = image.getRGB(x, y);
-            }
-        }
+        readPixels(image, startY * image.getWidth() + startX, pixelList, 0, pixelList.length);
         return pixelList;
 
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.imgnote.IMGNoteServer.utils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编解码与缓存热点路径的指标
+ * 记录到 Micrometer 全局注册表，Spring Boot 会把 Prometheus 注册表加入其中；未启动 Spring 时（如基准测试）不产生任何指标。
+ * 图片像素数与正文字节数按区间作为标签，控制标签取值的数量。
+ */
+public class MetricsTools {
+
+    // 各阶段耗时，标签 stage、mp、payload
+    public static final String STAGE_TIMER = "imgnote.stage";
+
+    public static final String CACHE_GET_TIMER = "imgnote.cache.get";
+
+    public static final String CACHE_PUT_TIMER = "imgnote.cache.put";
+
+    // 读写的正文字节数，标签 op
+    public static final String PAYLOAD_SUMMARY = "imgnote.payload";
+
+    public static final String STAGE_IMAGE_READ = "image_read";
+
+    public static final String STAGE_IMAGE_LOAD = "image_load";
+
+    public static final String STAGE_HEADER_PARSE = "header_parse";
+
+    public static final String STAGE_DATA_EXTRACT = "data_extract";
+
+    public static final String STAGE_PAYLOAD_DECODE = "payload_decode";
+
+    public static final String STAGE_STRING_DECODE = "string_decode";
+
+    public static final String STAGE_PNG_ENCODE = "png_encode";
+
+    public static final String STAGE_MD5 = "md5";
+
+    public static final String TIER_MEMORY = "memory";
+
+    public static final String TIER_DISK = "disk";
+
+    // 尺寸或字节数未知时的标签值
+    private static final String UNKNOWN = "none";
+
+    private MetricsTools() {
+    }
+
+    /**
+     * 记录阶段耗时
+     * @param width        图片宽度，未知时传 0
+     * @param payloadBytes 正文字节数，未知时传 -1
+     */
+    public static void recordStage(String stage, long startNanos, int width, int height, long payloadBytes) {
+        Timer.builder(STAGE_TIMER)
+                .tag("stage", stage)
+                .tag("mp", megapixelTag(width, height))
+                .tag("payload", payloadTag(payloadBytes))
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void recordCacheGet(String tier, boolean hit, long startNanos) {
+        Timer.builder(CACHE_GET_TIMER)
+                .tag("tier", tier)
+                .tag("result", hit ? "hit" : "miss")
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void recordCachePut(String tier, long payloadBytes, long startNanos) {
+        Timer.builder(CACHE_PUT_TIMER)
+                .tag("tier", tier)
+                .tag("payload", payloadTag(payloadBytes))
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param op read 或 write
+     */
+    public static void recordPayload(String op, long bytes) {
+        DistributionSummary.builder(PAYLOAD_SUMMARY)
+                .baseUnit("bytes")
+                .tag("op", op)
+                .register(Metrics.globalRegistry)
+                .record(bytes);
+    }
+
+    static String megapixelTag(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return UNKNOWN;
+        }
+        long pixels = (long) width * height;
+        if (pixels < 1_000_000L) {
+            return "lt1";
+        } else if (pixels < 4_000_000L) {
+            return "1-4";
+        } else if (pixels < 12_000_000L) {
+            return "4-12";
+        } else if (pixels < 24_000_000L) {
+            return "12-24";
+        }
+        return "ge24";
+    }
+
+    static String payloadTag(long bytes) {
+        if (bytes < 0) {
+            return UNKNOWN;
+        }
+        if (bytes < 64 * 1024L) {
+            return "lt64k";
+        } else if (bytes < 1024 * 1024L) {
+            return "64k-1m";
+        } else if (bytes < 8 * 1024 * 1024L) {
+            return "1m-8m";
+        }
+        return "ge8m";
+    }
+
+}
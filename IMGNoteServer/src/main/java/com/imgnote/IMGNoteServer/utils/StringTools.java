@@ -39,10 +39,28 @@ public class StringTools {
     }
 
     public static String getMD5OfString(String str) {
-        byte[] bytes = DigestUtils.md5(str.getBytes(StandardCharsets.UTF_8));
+        return getMD5OfBytes(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String getMD5OfBytes(byte[] data) {
+        byte[] bytes = DigestUtils.md5(data);
         return bytesToBinaryString(bytes);
     }
 
+    /**
+     * 计算字符串的MD5值（十六进制格式）
+     */
+    public static String getMD5HexOfString(String str) {
+        return DigestUtils.md5Hex(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计算数据的MD5值（十六进制格式，与解析后的Header一致）
+     */
+    public static String getMD5HexOfBytes(byte[] data) {
+        return DigestUtils.md5Hex(data);
+    }
+
     public static String stringToBytes(String str) {
         byte [] bytes = str.getBytes(StandardCharsets.UTF_8);
         return bytesToBinaryString(bytes);
@@ -89,9 +107,12 @@ public class StringTools {
             throw new BusinessException(ResponseCodeEnum.CODE_502);
         }
         // 使用BufferedInputStream缓冲流
+        long begin = System.nanoTime();
         try (FileInputStream fis = new FileInputStream(file);
              BufferedInputStream bis = new BufferedInputStream(fis)) {
-            return DigestUtils.md5Hex(bis);
+            String md5 = DigestUtils.md5Hex(bis);
+            MetricsTools.recordStage(MetricsTools.STAGE_MD5, begin, 0, 0, file.length());
+            return md5;
         } catch (IOException e) {
             log.error("计算文件MD5失败: {}", e.getMessage(), e);
             throw new BusinessException(ResponseCodeEnum.CODE_502);
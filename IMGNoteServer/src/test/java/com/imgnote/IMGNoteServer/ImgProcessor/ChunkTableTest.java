@@ -0,0 +1,60 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 块索引表的编解码测试
+ */
+class ChunkTableTest {
+
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    @Test
+    void roundTrip() {
+        ChunkTable table = new ChunkTable(CHUNK_SIZE, CHUNK_SIZE * 2L + 5);
+        table.set(0, 0, 100, 0x12345678);
+        table.set(1, 100, 200, -1);
+        table.set(2, 300, 5, 0);
+        byte[] bytes = table.toBytes();
+        assertEquals(ChunkTable.byteLength(3), bytes.length);
+        assertEquals(3, ChunkTable.readCount(Arrays.copyOfRange(bytes, bytes.length - ChunkTable.TRAILER_BYTES, bytes.length)));
+
+        // 表前有块数据时按结尾位置解析
+        byte[] region = new byte[305 + bytes.length];
+        System.arraycopy(bytes, 0, region, 305, bytes.length);
+        ChunkTable parsed = ChunkTable.parse(region, region.length, region.length);
+        assertEquals(CHUNK_SIZE, parsed.getChunkSize());
+        assertEquals(CHUNK_SIZE * 2L + 5, parsed.getRawLength());
+        for (int chunk = 0; chunk < 3; chunk++) {
+            assertEquals(table.getOffset(chunk), parsed.getOffset(chunk));
+            assertEquals(table.getLength(chunk), parsed.getLength(chunk));
+            assertEquals(table.getCrc(chunk), parsed.getCrc(chunk));
+        }
+        assertEquals(5, parsed.getRawLength(2));
+    }
+
+    @Test
+    void rejectsCorruption() {
+        ChunkTable table = new ChunkTable(CHUNK_SIZE, CHUNK_SIZE + 1L);
+        table.set(0, 0, CHUNK_SIZE, 1);
+        table.set(1, CHUNK_SIZE, 1, 2);
+        byte[] bytes = table.toBytes();
+        byte[] region = new byte[CHUNK_SIZE + 1 + bytes.length];
+        System.arraycopy(bytes, 0, region, CHUNK_SIZE + 1, bytes.length);
+        for (int i = CHUNK_SIZE + 1; i < region.length; i++) {
+            byte[] corrupted = region.clone();
+            corrupted[i] ^= 0x01;
+            assertThrows(IllegalArgumentException.class, () -> ChunkTable.parse(corrupted, corrupted.length, corrupted.length),
+                    "offset " + i);
+        }
+        // 块区间越过索引表
+        byte[] truncated = Arrays.copyOfRange(region, CHUNK_SIZE, region.length);
+        assertThrows(IllegalArgumentException.class, () -> ChunkTable.parse(truncated, truncated.length, truncated.length));
+    }
+
+}
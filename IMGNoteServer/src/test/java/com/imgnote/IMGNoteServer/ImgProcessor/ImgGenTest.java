@@ -0,0 +1,308 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.Constants;
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.PayloadConfig;
+import com.imgnote.IMGNoteServer.bean.PngEncodeConfig;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
+import com.imgnote.IMGNoteServer.enums.EncodingEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import com.imgnote.IMGNoteServer.utils.ImgTools;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 正文写入图片再读出的往返测试，覆盖各每通道位数、压缩方式与 PNG 分段大小
+ */
+class ImgGenTest {
+
+    private static final int WIDTH = 401;
+
+    private static final int HEIGHT = 257;
+
+    @TempDir
+    Path dir;
+
+    static Stream<Arguments> writeCases() {
+        return Stream.of(1, 2, 3, 4).flatMap(bitsPerChannel -> Stream.of(CompressionEnum.values()).flatMap(compression ->
+                Stream.of(1, 64).map(segmentSizeKb -> Arguments.of(bitsPerChannel, compression, segmentSizeKb))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeCases")
+    void writeAndRead(int bitsPerChannel, CompressionEnum compression, int segmentSizeKb) throws IOException {
+        PayloadConfig payloadConfig = payloadConfig(bitsPerChannel, compression);
+        String origin = originImage(WIDTH, HEIGHT);
+        String output = dir.resolve("note.png").toString();
+
+        byte[] data = text(new Random(segmentSizeKb), 20_000);
+        Header written = write(origin, output, data, encodeConfig(segmentSizeKb), payloadConfig, false);
+        assertNote(data, written, read(output, payloadConfig, null));
+        assertNote(data, written, read(output, payloadConfig, ForkJoinPool.commonPool()));
+        assertOnlyLowBitsChanged(origin, output, bitsPerChannel);
+    }
+
+    /**
+     * 沿用原起点的增量写入：被修改的块之前的数据区像素不变；不压缩时块长度不变，只改动变化的正文、对应的块索引与 Header 所在的像素
+     */
+    @ParameterizedTest
+    @MethodSource("writeCases")
+    void deltaWrite(int bitsPerChannel, CompressionEnum compression, int segmentSizeKb) throws IOException {
+        PayloadConfig payloadConfig = payloadConfig(bitsPerChannel, compression);
+        PngEncodeConfig encodeConfig = encodeConfig(segmentSizeKb);
+        String origin = originImage(WIDTH, HEIGHT);
+        String output = dir.resolve("note.png").toString();
+
+        byte[] data = text(new Random(segmentSizeKb), 20_000);
+        Header written = write(origin, output, data, encodeConfig, payloadConfig, false);
+        int[] before = pixels(output);
+
+        byte[] edited = data.clone();
+        int editedIndex = edited.length / 2;
+        edited[editedIndex] ^= 0x20;
+        Header rewritten = write(output, output, edited, encodeConfig, payloadConfig, true);
+        assertEquals(written.getStartPixel(), rewritten.getStartPixel());
+        assertNote(edited, rewritten, read(output, payloadConfig, null));
+        assertOnlyLowBitsChanged(origin, output, bitsPerChannel);
+
+        int[] after = pixels(output);
+        int editedOffset;
+        try (ImgParser parser = new ImgParser(output, new Header(), null, payloadConfig)) {
+            editedOffset = parser.readChunkTable().getOffset(editedIndex / payloadConfig.getChunkSize());
+        }
+        int startIndex = written.getStartPixel().getY() * WIDTH + written.getStartPixel().getX();
+        for (int i = startIndex; i < startIndex + LsbCodec.pixelsForBytes(editedOffset, bitsPerChannel); i++) {
+            assertEquals(before[i], after[i], "pixel " + i);
+        }
+        if (compression == CompressionEnum.NONE) {
+            int changed = 0;
+            for (int i = 0; i < before.length; i++) {
+                if (before[i] != after[i]) {
+                    changed++;
+                }
+            }
+            assertTrue(changed <= LsbCodec.pixelsForBytes(Constants.HEADER_BYTES) + 64, "changed pixels " + changed);
+        }
+    }
+
+    /**
+     * 按块索引表只读出并还原单个块，与完整正文的对应区间一致
+     */
+    @ParameterizedTest
+    @MethodSource("writeCases")
+    void chunkRead(int bitsPerChannel, CompressionEnum compression, int segmentSizeKb) throws IOException {
+        PayloadConfig payloadConfig = payloadConfig(bitsPerChannel, compression);
+        String origin = originImage(WIDTH, HEIGHT);
+        String output = dir.resolve("note.png").toString();
+        byte[] data = text(new Random(segmentSizeKb), 20_000);
+        write(origin, output, data, encodeConfig(segmentSizeKb), payloadConfig, false);
+
+        try (ImgParser parser = new ImgParser(output, new Header(), null, payloadConfig)) {
+            ChunkTable table = parser.readChunkTable();
+            assertEquals(data.length, table.getRawLength());
+            for (int chunk = 0; chunk < table.getCount(); chunk++) {
+                byte[] stored = parser.readStoredBytes(table.getOffset(chunk), table.getLength(chunk));
+                assertTrue(PayloadCodec.checkChunk(table, chunk, stored, 0));
+                int from = chunk * table.getChunkSize();
+                assertArrayEquals(Arrays.copyOfRange(data, from, from + table.getRawLength(chunk)),
+                        PayloadCodec.decodeChunk(compression, stored, 0, stored.length, table.getRawLength(chunk)));
+            }
+        }
+    }
+
+    /**
+     * 图片容量报告的正文长度一定能写下，多一个字节则写入失败；随机正文无法压缩，压缩后长度接近上限
+     */
+    @ParameterizedTest
+    @MethodSource("writeCases")
+    void maxContentLenFits(int bitsPerChannel, CompressionEnum compression, int segmentSizeKb) throws IOException {
+        PayloadConfig payloadConfig = payloadConfig(bitsPerChannel, compression);
+        PngEncodeConfig encodeConfig = encodeConfig(segmentSizeKb);
+        String origin = originImage(WIDTH, HEIGHT);
+        String output = dir.resolve("full.png").toString();
+        int maxContentLen = (int) ImgTools.getMaxContentLen(WIDTH, HEIGHT, payloadConfig);
+
+        byte[] data = new byte[maxContentLen];
+        new Random(maxContentLen).nextBytes(data);
+        Header written = write(origin, output, data, encodeConfig, payloadConfig, false);
+        assertNote(data, written, read(output, payloadConfig, null));
+
+        byte[] tooLong = Arrays.copyOf(data, maxContentLen + 1);
+        assertThrows(BusinessException.class, () -> write(origin, output, tooLong, encodeConfig, payloadConfig, false));
+    }
+
+    /**
+     * 宽度不超过 Header 像素数的图片，数据区起点在 Header 之后，写满容量时 Header 仍完整
+     */
+    @ParameterizedTest
+    @CsvSource({"60, 400", "100, 300", "135, 140", "136, 200", "137, 137"})
+    void narrowImage(int width, int height) throws IOException {
+        PayloadConfig payloadConfig = payloadConfig(1, CompressionEnum.NONE);
+        String origin = originImage(width, height);
+        String output = dir.resolve("narrow.png").toString();
+        int headerPixels = LsbCodec.pixelsForBytes(Constants.HEADER_BYTES);
+
+        int maxContentLen = (int) ImgTools.getMaxContentLen(width, height, payloadConfig);
+        for (int length : new int[]{maxContentLen, maxContentLen / 2, 1}) {
+            byte[] data = text(new Random(length), length);
+            Header written = write(origin, output, data, encodeConfig(1), payloadConfig, false);
+            int startIndex = written.getStartPixel().getY() * width + written.getStartPixel().getX();
+            assertTrue(written.getStartPixel().getX() >= 0 && startIndex >= headerPixels, "start " + written.getStartPixel());
+            assertNote(data, written, read(output, payloadConfig, null));
+        }
+    }
+
+    @Test
+    void invalidBitsPerChannel() throws IOException {
+        String origin = originImage(WIDTH, HEIGHT);
+        assertThrows(IllegalArgumentException.class, () -> new ImgGen(origin, dir.resolve("x.png").toString(),
+                Constants.FORMAT, new PngEncodeConfig(), null, AtomicFileSaver.NO_SYNC, payloadConfig(5, CompressionEnum.NONE)));
+    }
+
+    static PayloadConfig payloadConfig(int bitsPerChannel, CompressionEnum compression) {
+        PayloadConfig config = new PayloadConfig();
+        config.setBitsPerChannel(bitsPerChannel);
+        config.setCompression(compression);
+        config.setChunkSizeKb(4);
+        return config;
+    }
+
+    private static PngEncodeConfig encodeConfig(int segmentSizeKb) {
+        PngEncodeConfig config = new PngEncodeConfig();
+        config.setSegmentSizeKb(segmentSizeKb);
+        return config;
+    }
+
+    private static byte[] text(Random random, int length) {
+        byte[] sample = "图片笔记本 IMGNote 0123456789\n".getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = sample[(i + random.nextInt(2)) % sample.length];
+        }
+        return data;
+    }
+
+    /**
+     * 按服务写入时的步骤写入正文与 Header
+     * @param delta 是否沿用 origin 中原笔记本的起点
+     */
+    static Header write(String origin, String output, byte[] data, PngEncodeConfig encodeConfig,
+                        PayloadConfig payloadConfig, boolean delta) {
+        try (ImgGen imgGen = new ImgGen(origin, output, Constants.FORMAT, encodeConfig, null, AtomicFileSaver.NO_SYNC, payloadConfig)) {
+            CompressionEnum compression = payloadConfig.getCompression();
+            int chunkSize = payloadConfig.getChunkSize();
+            long payloadLength = PayloadCodec.storedBound(data.length, compression, chunkSize);
+            if (delta) {
+                Header old = new Header();
+                try (ImgParser parser = new ImgParser(origin, old)) {
+                    assertTrue(imgGen.reuseStart(old.getStartPixel(), payloadLength));
+                }
+            } else {
+                imgGen.genStartAndEnd(payloadLength);
+            }
+            InputStream in = new ByteArrayInputStream(data);
+            String dataMd5 = imgGen.writeData(compression == CompressionEnum.DEFLATE
+                    ? PayloadCodec.compressedStream(in, data.length, chunkSize)
+                    : PayloadCodec.chunkedStream(in, data.length, chunkSize));
+
+            Header header = new Header();
+            header.setEncoding(EncodingEnum.UTF_8);
+            header.setEncryptionType(EncodeTypeEnum.NONE);
+            header.setStartPixel(imgGen.getStartPixel());
+            header.setEndPixel(imgGen.getEndPixel());
+            header.setTime(System.currentTimeMillis());
+            header.setDataMd5(dataMd5);
+            header.setVerifyCode(DigestUtils.md5Hex(""));
+            header.setCompression(compression);
+            header.setLayout(DataLayoutEnum.CHUNKED);
+            header.setBitsPerChannel(imgGen.getBitsPerChannel());
+            header.setPaddingBytes(imgGen.getPaddingBytes());
+            imgGen.gen(header);
+            return header;
+        }
+    }
+
+    static Note read(String path, PayloadConfig payloadConfig, ForkJoinPool pool) {
+        Header header = new Header();
+        try (ImgParser parser = new ImgParser(path, header, pool, payloadConfig)) {
+            byte[] stored = parser.getData();
+            assertEquals(header.getDataMd5(), DigestUtils.md5Hex(stored));
+            return new Note(header, PayloadCodec.decode(header, stored));
+        }
+    }
+
+    static void assertNote(byte[] expected, Header written, Note note) {
+        assertArrayEquals(expected, note.data());
+        Header header = note.header();
+        assertEquals(Constants.HEADER_VERSION, header.getVersion().intValue());
+        assertEquals(written.getStartPixel(), header.getStartPixel());
+        assertEquals(written.getEndPixel(), header.getEndPixel());
+        assertEquals(written.getDataMd5(), header.getDataMd5());
+        assertEquals(written.getCompression(), header.getCompression());
+        assertEquals(written.getBitsPerChannel(), header.getBitsPerChannel());
+        assertEquals(written.getPaddingBytes(), header.getPaddingBytes());
+    }
+
+    record Note(Header header, byte[] data) {
+    }
+
+    private String originImage(int width, int height) throws IOException {
+        File file = dir.resolve("origin-" + width + "x" + height + ".png").toFile();
+        if (!file.exists()) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Random random = new Random(width);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            ImageIO.write(image, Constants.FORMAT, file);
+        }
+        return file.getPath();
+    }
+
+    /**
+     * 写入只改动各通道的低 bitsPerChannel 位，Header 所在像素只改动最低位
+     */
+    private static void assertOnlyLowBitsChanged(String origin, String output, int bitsPerChannel) throws IOException {
+        int[] before = pixels(origin);
+        int[] after = pixels(output);
+        int headerPixels = LsbCodec.pixelsForBytes(Constants.HEADER_BYTES);
+        for (int i = 0; i < before.length; i++) {
+            int bits = i < headerPixels ? 1 : bitsPerChannel;
+            int mask = 0x01010101 * ((1 << bits) - 1);
+            assertEquals(before[i] & ~mask, after[i] & ~mask, "pixel " + i);
+        }
+    }
+
+    private static int[] pixels(String path) throws IOException {
+        BufferedImage image = ImageIO.read(new File(path));
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.exceptions.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 正文压缩与分块编码的往返测试
+ */
+class PayloadCodecTest {
+
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    static Stream<Arguments> payloadCases() {
+        return Stream.of(CompressionEnum.values()).flatMap(compression -> Stream.of(
+                0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 5 + 123
+        ).flatMap(length -> Stream.of(
+                Arguments.of(compression, length, true),
+                Arguments.of(compression, length, false)
+        )));
+    }
+
+    /**
+     * 随机数据无法压缩，用于检查压缩后长度的上限；文本数据检查正常压缩
+     */
+    @ParameterizedTest
+    @MethodSource("payloadCases")
+    void roundTrip(CompressionEnum compression, int length, boolean incompressible) throws IOException {
+        byte[] data = payload(new Random(length), length, incompressible);
+        byte[] stored = encode(compression, data);
+
+        long bound = PayloadCodec.storedBound(length, compression, CHUNK_SIZE);
+        assertTrue(stored.length <= bound, "stored " + stored.length + " > bound " + bound);
+        if (compression == CompressionEnum.NONE) {
+            assertEquals(PayloadCodec.chunkedStoredLength(length, CHUNK_SIZE), stored.length);
+        }
+
+        ChunkTable table = ChunkTable.parse(stored, stored.length, stored.length);
+        assertEquals(length, table.getRawLength());
+        assertEquals(ChunkTable.chunkCount(length, CHUNK_SIZE), table.getCount());
+        for (int chunk = 0; chunk < table.getCount(); chunk++) {
+            assertTrue(PayloadCodec.checkChunk(table, chunk, stored, table.getOffset(chunk)));
+        }
+        assertArrayEquals(data, PayloadCodec.decode(header(compression), stored));
+    }
+
+    @Test
+    void maxContentLengthFitsCapacity() {
+        for (CompressionEnum compression : CompressionEnum.values()) {
+            // 容量不足以放下空正文的索引表时没有意义，从索引表尾部的长度开始
+            for (long capacity : new long[]{ChunkTable.TRAILER_BYTES, 100, CHUNK_SIZE * 3L, 1_234_567}) {
+                long max = PayloadCodec.maxContentLength(capacity, compression, CHUNK_SIZE);
+                assertTrue(PayloadCodec.storedBound(max, compression, CHUNK_SIZE) <= capacity);
+                assertTrue(PayloadCodec.storedBound(max + 1, compression, CHUNK_SIZE) > capacity);
+            }
+        }
+    }
+
+    @Test
+    void deflateBoundCoversIncompressibleChunk() throws IOException {
+        for (int length : new int[]{1, 100, CHUNK_SIZE, 64 * 1024, 1024 * 1024}) {
+            byte[] data = payload(new Random(length), length, true);
+            // 整个正文作为一块
+            byte[] stored = PayloadCodec.compressedStream(new ByteArrayInputStream(data), length, length).readAllBytes();
+            assertTrue(stored.length - ChunkTable.byteLength(1) <= PayloadCodec.deflateBound(length), "length " + length);
+        }
+    }
+
+    @Test
+    void shortInputIsRejected() {
+        for (CompressionEnum compression : CompressionEnum.values()) {
+            InputStream in = stream(compression, new ByteArrayInputStream(new byte[CHUNK_SIZE]), CHUNK_SIZE * 2L);
+            assertThrows(BusinessException.class, in::readAllBytes);
+        }
+    }
+
+    private static byte[] payload(Random random, int length, boolean incompressible) {
+        byte[] data = new byte[length];
+        if (incompressible) {
+            random.nextBytes(data);
+        } else {
+            byte[] sample = "图片笔记本 IMGNote 0123456789\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < length; i++) {
+                data[i] = sample[(i + random.nextInt(2)) % sample.length];
+            }
+        }
+        return data;
+    }
+
+    private static InputStream stream(CompressionEnum compression, InputStream in, long length) {
+        return compression == CompressionEnum.DEFLATE
+                ? PayloadCodec.compressedStream(in, length, CHUNK_SIZE)
+                : PayloadCodec.chunkedStream(in, length, CHUNK_SIZE);
+    }
+
+    private static byte[] encode(CompressionEnum compression, byte[] data) {
+        try {
+            return stream(compression, new ByteArrayInputStream(data), data.length).readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Header header(CompressionEnum compression) {
+        Header header = new Header();
+        header.setCompression(compression);
+        header.setLayout(DataLayoutEnum.CHUNKED);
+        return header;
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.imgnote.IMGNoteServer.ImgProcessor;
+
+import com.imgnote.IMGNoteServer.bean.PngEncodeConfig;
+import com.imgnote.IMGNoteServer.enums.PngFilterEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * PNG 分段编码的往返测试，编码结果以 ImageIO 的解码为准
+ */
+class PngSegmentImageTest {
+
+    @TempDir
+    Path dir;
+
+    static Stream<Arguments> encodeCases() {
+        return Stream.of(
+                Arguments.of(1, 1, 1, PngFilterEnum.ADAPTIVE, true),
+                Arguments.of(150, 97, 1, PngFilterEnum.NONE, false),
+                Arguments.of(333, 211, 1, PngFilterEnum.SUB, true),
+                Arguments.of(257, 300, 4, PngFilterEnum.UP, false),
+                Arguments.of(640, 48, 4, PngFilterEnum.AVERAGE, true),
+                Arguments.of(1001, 37, 16, PngFilterEnum.PAETH, true),
+                Arguments.of(777, 129, 256, PngFilterEnum.ADAPTIVE, false)
+        );
+    }
+
+    /**
+     * 修改部分像素后保存，再按分段索引打开修改另一部分并保存，两次结果都与 ImageIO 解码一致
+     */
+    @ParameterizedTest
+    @MethodSource("encodeCases")
+    void encodeRoundTrip(int width, int height, int segmentSizeKb, PngFilterEnum filter, boolean alpha) throws IOException {
+        Random random = new Random((long) width * 31 + height);
+        PngEncodeConfig config = new PngEncodeConfig();
+        config.setSegmentSizeKb(segmentSizeKb);
+        config.setFilter(filter);
+        int total = width * height;
+
+        int[] expected = randomPixels(random, total, alpha);
+        String origin = writeImage("origin.png", width, height, expected, alpha);
+
+        String first = dir.resolve("first.png").toString();
+        try (PngSegmentImage image = PngSegmentImage.open(origin, config)) {
+            assertEquals(width, image.getWidth());
+            assertEquals(height, image.getHeight());
+            int[] loaded = new int[total];
+            image.readPixels(0, loaded, 0, total);
+            assertArrayEquals(expected, loaded);
+
+            writeRange(image, random, expected, total / 3, Math.max(1, total / 4), alpha);
+            image.save(first);
+        }
+        assertArrayEquals(expected, readImageIO(first));
+        assertArrayEquals(expected, readRows(first));
+
+        // 第二次按分段索引打开，未修改的段直接复制
+        String second = dir.resolve("second.png").toString();
+        try (PngSegmentImage image = PngSegmentImage.open(first, config)) {
+            writeRange(image, random, expected, total / 2, Math.max(1, total / 50), alpha);
+            image.save(second);
+        }
+        assertArrayEquals(expected, readImageIO(second));
+        assertArrayEquals(expected, readRows(second));
+    }
+
+    /**
+     * 流式写入时按顺序封存已写完的段，保存结果与逐像素写入一致
+     */
+    @ParameterizedTest
+    @MethodSource("encodeCases")
+    void sealRoundTrip(int width, int height, int segmentSizeKb, PngFilterEnum filter, boolean alpha) throws IOException {
+        Random random = new Random((long) width * 17 + height);
+        PngEncodeConfig config = new PngEncodeConfig();
+        config.setSegmentSizeKb(segmentSizeKb);
+        config.setFilter(filter);
+        int total = width * height;
+
+        int[] expected = randomPixels(random, total, alpha);
+        String origin = writeImage("origin.png", width, height, expected, alpha);
+        String indexed = dir.resolve("indexed.png").toString();
+        try (PngSegmentImage image = PngSegmentImage.open(origin, config)) {
+            image.save(indexed);
+        }
+
+        String sealed = dir.resolve("sealed.png").toString();
+        try (PngSegmentImage image = PngSegmentImage.open(indexed, config)) {
+            int from = total / 5;
+            int step = Math.max(1, width / 3);
+            for (int index = from; index < total; index += step) {
+                int count = Math.min(step, total - index);
+                writeRange(image, random, expected, index, count, alpha);
+                image.seal(from, index + count);
+            }
+            image.save(sealed);
+        }
+        assertArrayEquals(expected, readImageIO(sealed));
+    }
+
+    @Test
+    void savedImageHasSegmentIndex() throws IOException {
+        PngEncodeConfig config = new PngEncodeConfig();
+        config.setSegmentSizeKb(1);
+        int[] pixels = randomPixels(new Random(7), 300 * 40, false);
+        String origin = writeImage("origin.png", 300, 40, pixels, false);
+        String output = dir.resolve("output.png").toString();
+        try (PngSegmentImage image = PngSegmentImage.open(origin, config)) {
+            image.save(output);
+        }
+        try (PngRowReader reader = PngRowReader.open(output)) {
+            assertNotNull(reader);
+            assertNotNull(reader.getSegmentIndex());
+        }
+    }
+
+    @Test
+    void adler32CombineMatchesAdler32() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            byte[] data = new byte[random.nextInt(200_000)];
+            random.nextBytes(data);
+            assertCombine(data, data.length == 0 ? 0 : random.nextInt(data.length + 1));
+        }
+    }
+
+    /**
+     * 两段和接近模数、第二段长度为模数倍数时的取模边界
+     */
+    @Test
+    void adler32CombineAtModulusBoundary() {
+        final int base = 65521;
+        for (int len : new int[]{base - 1, base, base + 1, base * 3, 5552, 5553}) {
+            byte[] data = new byte[len * 2];
+            Arrays.fill(data, (byte) 0xFF);
+            assertCombine(data, len);
+            assertCombine(data, 1);
+            assertCombine(data, data.length - 1);
+        }
+        assertCombine(new byte[0], 0);
+        assertCombine(new byte[]{(byte) 0xFF}, 0);
+        assertCombine(new byte[]{(byte) 0xFF}, 1);
+    }
+
+    private static void assertCombine(byte[] data, int split) {
+        Adler32 first = new Adler32();
+        first.update(data, 0, split);
+        Adler32 second = new Adler32();
+        second.update(data, split, data.length - split);
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        assertEquals(whole.getValue(), PngSegmentImage.adler32Combine(first.getValue(), second.getValue(), data.length - split),
+                "length " + data.length + ", split " + split);
+    }
+
+    private static int[] randomPixels(Random random, int count, boolean alpha) {
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = alpha ? random.nextInt() : random.nextInt() | 0xFF000000;
+        }
+        return pixels;
+    }
+
+    private static void writeRange(PngSegmentImage image, Random random, int[] expected, int from, int count,
+                                   boolean alpha) throws IOException {
+        int[] pixels = randomPixels(random, count, alpha);
+        image.writePixels(from, pixels, 0, count);
+        System.arraycopy(pixels, 0, expected, from, count);
+    }
+
+    private String writeImage(String name, int width, int height, int[] pixels, boolean alpha) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        File file = dir.resolve(name).toFile();
+        ImageIO.write(image, "png", file);
+        return file.getPath();
+    }
+
+    private static int[] readImageIO(String path) throws IOException {
+        BufferedImage image = ImageIO.read(new File(path));
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static int[] readRows(String path) throws IOException {
+        try (PngRowReader reader = PngRowReader.open(path)) {
+            assertNotNull(reader);
+            int[] pixels = new int[reader.getWidth() * reader.getHeight()];
+            reader.readPixels(0, pixels, 0, pixels.length);
+            return pixels;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.imgnote.IMGNoteServer.converter;
+
+import com.imgnote.IMGNoteServer.ImgProcessor.LsbCodec;
+import com.imgnote.IMGNoteServer.bean.Constants;
+import com.imgnote.IMGNoteServer.bean.Header;
+import com.imgnote.IMGNoteServer.bean.Pixel;
+import com.imgnote.IMGNoteServer.enums.CompressionEnum;
+import com.imgnote.IMGNoteServer.enums.DataLayoutEnum;
+import com.imgnote.IMGNoteServer.enums.EncodeTypeEnum;
+import com.imgnote.IMGNoteServer.enums.EncodingEnum;
+import com.imgnote.IMGNoteServer.utils.StringTools;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制 Header 的编解码测试
+ */
+class HeaderCodecTest {
+
+    private static final int VERSION_OFFSET = 2;
+
+    private static final int LAYOUT_OFFSET = 6;
+
+    private static final int CRC_OFFSET = 64;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4})
+    void roundTrip(int bitsPerChannel) {
+        Header header = header(CompressionEnum.DEFLATE, DataLayoutEnum.CHUNKED, bitsPerChannel,
+                LsbCodec.unitBytes(bitsPerChannel) - 1);
+        byte[] bytes = HeaderCodec.encode(header);
+        assertEquals(Constants.HEADER_BYTES, bytes.length);
+        assertTrue(HeaderCodec.isBinary(ByteBuffer.wrap(bytes)));
+
+        Header decoded = new Header();
+        HeaderCodec.decode(ByteBuffer.wrap(bytes), decoded);
+        assertEquals(header, decoded);
+    }
+
+    @Test
+    void roundTripContiguous() {
+        Header header = header(CompressionEnum.NONE, DataLayoutEnum.CONTIGUOUS, 1, 0);
+        Header decoded = new Header();
+        HeaderCodec.decode(ByteBuffer.wrap(HeaderCodec.encode(header)), decoded);
+        assertEquals(header, decoded);
+    }
+
+    /**
+     * 任意一个字节被改动都应校验失败
+     */
+    @Test
+    void crcMismatch() {
+        byte[] bytes = HeaderCodec.encode(header(CompressionEnum.NONE, DataLayoutEnum.CHUNKED, 2, 0));
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[i] ^= 0x10;
+            assertThrows(IllegalArgumentException.class, () -> HeaderCodec.decode(ByteBuffer.wrap(corrupted), new Header()),
+                    "offset " + i);
+        }
+    }
+
+    @Test
+    void unsupportedVersion() {
+        byte[] bytes = HeaderCodec.encode(header(CompressionEnum.NONE, DataLayoutEnum.CHUNKED, 1, 0));
+        bytes[VERSION_OFFSET] = (byte) (Constants.HEADER_VERSION + 1);
+        resign(bytes);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> HeaderCodec.decode(ByteBuffer.wrap(bytes), new Header()));
+        assertTrue(e.getMessage().contains("版本"));
+    }
+
+    @Test
+    void contiguousLayoutIsNotCompressed() {
+        byte[] bytes = HeaderCodec.encode(header(CompressionEnum.DEFLATE, DataLayoutEnum.CHUNKED, 1, 0));
+        bytes[LAYOUT_OFFSET] = DataLayoutEnum.CONTIGUOUS.getNumber().byteValue();
+        resign(bytes);
+        assertThrows(IllegalArgumentException.class, () -> HeaderCodec.decode(ByteBuffer.wrap(bytes), new Header()));
+    }
+
+    @Test
+    void invalidBitsPerChannel() {
+        // 每通道 5 位，或末尾多出的字节数不小于对齐单位
+        assertThrows(IllegalArgumentException.class, () -> HeaderCodec.decode(
+                ByteBuffer.wrap(HeaderCodec.encode(header(CompressionEnum.NONE, DataLayoutEnum.CHUNKED, 5, 0))), new Header()));
+        assertThrows(IllegalArgumentException.class, () -> HeaderCodec.decode(
+                ByteBuffer.wrap(HeaderCodec.encode(header(CompressionEnum.NONE, DataLayoutEnum.CHUNKED, 4, 2))), new Header()));
+    }
+
+    @Test
+    void stringHeaderIsNotBinary() {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.HEADER_BYTES);
+        buffer.putShort(0, Constants.RECOGNITION_V1);
+        assertFalse(HeaderCodec.isBinary(buffer));
+    }
+
+    private static Header header(CompressionEnum compression, DataLayoutEnum layout, int bitsPerChannel, int paddingBytes) {
+        Header header = new Header();
+        header.setRecognitionShort(Constants.RECOGNITION);
+        header.setVersion(Constants.HEADER_VERSION);
+        header.setEncryptionType(EncodeTypeEnum.STRONG);
+        header.setEncoding(EncodingEnum.UTF_8);
+        header.setCompression(compression);
+        header.setLayout(layout);
+        header.setBitsPerChannel(bitsPerChannel);
+        header.setPaddingBytes(paddingBytes);
+        header.setStartPixel(new Pixel(137, 2));
+        header.setEndPixel(new Pixel(16383, 16000));
+        header.setTime(1760000000123L);
+        header.setDataMd5(StringTools.getMD5HexOfString("正文"));
+        header.setVerifyCode(StringTools.getMD5HexOfString("password"));
+        return header;
+    }
+
+    /**
+     * 修改字段后重新计算 CRC，使校验通过而由字段检查拒绝
+     */
+    private static void resign(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, CRC_OFFSET);
+        ByteBuffer.wrap(bytes).putInt(CRC_OFFSET, (int) crc.getValue());
+    }
+
+}